@@ -0,0 +1,171 @@
+import java.util.*;
+
+/**
+ * Aho-Corasick automaton for counting several keywords in one pass over a text.
+ * The goto/failure structure is compiled into a full transition table over the keywords'
+ * alphabet (characters outside it lead back to the root), so scanning costs one table lookup
+ * per character however many keywords there are.
+ *
+ * Counting does not walk output links per character: every step only bumps a visit counter
+ * of the state it lands in, and after the pass the visits are pushed up the failure links
+ * (deepest states first). A keyword's count is then the visit total of its state, i.e. the number
+ * of positions where it ends - overlapping occurrences included, like boyerMooreSearch.
+ *
+ * Assignment 3
+ */
+public class AhoCorasick {
+
+    private static final int CACHE_SIZE = 64;
+
+    // Recently used automata by keyword list, so repeated queries skip the build
+    private static final Map<List<String>, AhoCorasick> CACHE =
+        new LinkedHashMap<List<String>, AhoCorasick>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<List<String>, AhoCorasick> eldest) {
+                return size() > CACHE_SIZE;
+            }
+        };
+
+    private final List<String> patterns;
+    private final int[] asciiClass;
+    private final Map<Character, Integer> otherClass;
+    private final int width;
+    private final int[] delta;
+    private final int[] fail;
+    private final int[] bfsOrder;
+    private final int[] patternState;
+    private final int maxLength;
+
+    /**
+     * @param patterns keywords to count; duplicates share a state and empty keywords always count 0
+     */
+    public AhoCorasick(List<String> patterns) {
+        this.patterns = Collections.unmodifiableList(new ArrayList<>(patterns));
+
+        // Alphabet: class 0 is "any other character", keyword characters get 1, 2, ...
+        asciiClass = new int[128];
+        otherClass = new HashMap<>();
+        int classes = 1;
+        for (String pattern : patterns) {
+            for (int i = 0; i < pattern.length(); i++) {
+                char ch = pattern.charAt(i);
+                if (ch < 128) {
+                    if (asciiClass[ch] == 0) {
+                        asciiClass[ch] = classes++;
+                    }
+                } else if (!otherClass.containsKey(ch)) {
+                    otherClass.put(ch, classes++);
+                }
+            }
+        }
+        width = classes;
+        int longest = 0;
+        for (String pattern : patterns) {
+            longest = Math.max(longest, pattern.length());
+        }
+        maxLength = longest;
+
+        // Keyword trie, transitions stored straight into the table (0 = no child yet)
+        int maxStates = 1;
+        for (String pattern : patterns) {
+            maxStates += pattern.length();
+        }
+        int[] table = new int[maxStates * width];
+        patternState = new int[patterns.size()];
+        int states = 1;
+        for (int p = 0; p < patterns.size(); p++) {
+            String pattern = patterns.get(p);
+            int state = 0;
+            for (int i = 0; i < pattern.length(); i++) {
+                int c = classOf(pattern.charAt(i));
+                if (table[state * width + c] == 0) {
+                    table[state * width + c] = states++;
+                }
+                state = table[state * width + c];
+            }
+            patternState[p] = pattern.isEmpty() ? -1 : state;
+        }
+
+        // Breadth-first: failure links, and missing transitions borrowed from the failure state
+        fail = new int[states];
+        bfsOrder = new int[states];
+        int head = 0;
+        int tail = 0;
+        bfsOrder[tail++] = 0;
+        while (head < tail) {
+            int state = bfsOrder[head++];
+            for (int c = 0; c < width; c++) {
+                int child = table[state * width + c];
+                int fallback = state == 0 ? 0 : table[fail[state] * width + c];
+                if (child != 0) {
+                    fail[child] = fallback;
+                    bfsOrder[tail++] = child;
+                } else {
+                    table[state * width + c] = fallback;
+                }
+            }
+        }
+        delta = Arrays.copyOf(table, states * width);
+    }
+
+    /**
+     * Returns the automaton for these keywords, reusing a recently built one.
+     */
+    public static AhoCorasick forPatterns(List<String> patterns) {
+        synchronized (CACHE) {
+            AhoCorasick automaton = CACHE.get(patterns);
+            if (automaton == null) {
+                automaton = new AhoCorasick(patterns);
+                CACHE.put(automaton.patterns, automaton);
+            }
+            return automaton;
+        }
+    }
+
+    private int classOf(char ch) {
+        if (ch < 128) {
+            return asciiClass[ch];
+        }
+        Integer c = otherClass.get(ch);
+        return c == null ? 0 : c;
+    }
+
+    public List<String> patterns() {
+        return patterns;
+    }
+
+    /**
+     * Occurrences of every keyword in the text, indexed like the keyword list. Thread safe.
+     */
+    public int[] count(CharSequence text) {
+        return count(text, 0, text.length());
+    }
+
+    /**
+     * Occurrences that end in [from, to), so counts of adjacent ranges add up to the count of the
+     * whole text. The scan starts (longest keyword - 1) characters early to pick up the state at from.
+     */
+    public int[] count(CharSequence text, int from, int to) {
+        int[] visits = new int[fail.length];
+        int state = 0;
+        for (int i = Math.max(0, from - maxLength + 1); i < from; i++) {
+            state = delta[state * width + classOf(text.charAt(i))];
+        }
+        for (int i = from; i < to; i++) {
+            state = delta[state * width + classOf(text.charAt(i))];
+            visits[state]++;
+        }
+
+        // A state's visits are also visits of everything on its failure chain
+        for (int i = bfsOrder.length - 1; i > 0; i--) {
+            int s = bfsOrder[i];
+            visits[fail[s]] += visits[s];
+        }
+
+        int[] counts = new int[patterns.size()];
+        for (int p = 0; p < counts.length; p++) {
+            counts[p] = patternState[p] < 0 ? 0 : visits[patternState[p]];
+        }
+        return counts;
+    }
+}
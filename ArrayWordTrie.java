@@ -0,0 +1,286 @@
+import java.util.*;
+
+/**
+ * Compact WordTrie backend without per-node objects.
+ * Nodes are indexes into parallel primitive arrays (struct-of-arrays): each node stores its
+ * edge label, first child, next sibling and parent, and siblings are kept sorted by label,
+ * so a prefix walk is a plain pre-order traversal that comes out in lexicographic order.
+ *
+ * Assignment 3
+ */
+public class ArrayWordTrie implements WordTrie {
+
+    private static final int NONE = -1;
+    private static final int ROOT = 0;
+
+    private char[] label;
+    private int[] firstChild;
+    private int[] nextSibling;
+    private int[] parent;
+    private int[] wordId;
+    private int[] wordsBelow;
+    private int[] wordNode;
+    private int nodeCount;
+    private int wordCount;
+
+    public ArrayWordTrie() {
+        this(1024);
+    }
+
+    public ArrayWordTrie(int expectedNodes) {
+        int capacity = Math.max(16, expectedNodes);
+        label = new char[capacity];
+        firstChild = new int[capacity];
+        nextSibling = new int[capacity];
+        parent = new int[capacity];
+        wordId = new int[capacity];
+        wordsBelow = new int[capacity];
+        wordNode = new int[Math.max(16, capacity / 4)];
+        nodeCount = 0;
+        wordCount = 0;
+        newNode(NONE, '\0');
+    }
+
+    private int newNode(int parentNode, char ch) {
+        if (nodeCount == label.length) {
+            int capacity = label.length * 2;
+            label = Arrays.copyOf(label, capacity);
+            firstChild = Arrays.copyOf(firstChild, capacity);
+            nextSibling = Arrays.copyOf(nextSibling, capacity);
+            parent = Arrays.copyOf(parent, capacity);
+            wordId = Arrays.copyOf(wordId, capacity);
+            wordsBelow = Arrays.copyOf(wordsBelow, capacity);
+        }
+        int node = nodeCount++;
+        label[node] = ch;
+        firstChild[node] = NONE;
+        nextSibling[node] = NONE;
+        parent[node] = parentNode;
+        wordId[node] = NONE;
+        wordsBelow[node] = 0;
+        return node;
+    }
+
+    private int child(int node, char ch) {
+        for (int c = firstChild[node]; c != NONE && label[c] <= ch; c = nextSibling[c]) {
+            if (label[c] == ch) {
+                return c;
+            }
+        }
+        return NONE;
+    }
+
+    private int childOrCreate(int node, char ch) {
+        int previous = NONE;
+        int c = firstChild[node];
+        while (c != NONE && label[c] < ch) {
+            previous = c;
+            c = nextSibling[c];
+        }
+        if (c != NONE && label[c] == ch) {
+            return c;
+        }
+        int created = newNode(node, ch);
+        nextSibling[created] = c;
+        if (previous == NONE) {
+            firstChild[node] = created;
+        } else {
+            nextSibling[previous] = created;
+        }
+        return created;
+    }
+
+    private int findNode(String prefix) {
+        int node = ROOT;
+        for (int i = 0; i < prefix.length() && node != NONE; i++) {
+            node = child(node, prefix.charAt(i));
+        }
+        return node;
+    }
+
+    @Override
+    public int insert(String word) {
+        int node = ROOT;
+        for (int i = 0; i < word.length(); i++) {
+            node = childOrCreate(node, word.charAt(i));
+        }
+        if (wordId[node] == NONE) {
+            if (wordCount == wordNode.length) {
+                wordNode = Arrays.copyOf(wordNode, wordCount * 2);
+            }
+            wordId[node] = wordCount;
+            wordNode[wordCount++] = node;
+            for (int n = node; n != NONE; n = parent[n]) {
+                wordsBelow[n]++;
+            }
+        }
+        return wordId[node];
+    }
+
+    @Override
+    public int find(String word) {
+        int node = findNode(word);
+        return node == NONE ? NONE : wordId[node];
+    }
+
+    @Override
+    public PrimitiveIterator.OfInt wordsWithPrefix(String prefix, int afterId) {
+        final int start = findNode(prefix);
+        final int resumeNode = afterId >= 0 ? wordNode[afterId] : NONE;
+        if (resumeNode != NONE && !isWithin(resumeNode, start)) {
+            throw new IllegalArgumentException("Word " + afterId + " does not start with \"" + prefix + "\"");
+        }
+
+        // Parent links make the pre-order walk stackless: down to the first child, else across
+        // to the next sibling, else back up until an ancestor (below start) has one.
+        // Resuming is just continuing the walk from the node of the last word returned
+        return new PrimitiveIterator.OfInt() {
+            private int node = resumeNode != NONE ? resumeNode : start;
+            private int next = start == NONE ? NONE
+                : (resumeNode == NONE && wordId[start] != NONE ? wordId[start] : advance());
+
+            private int advance() {
+                while (node != NONE) {
+                    if (firstChild[node] != NONE) {
+                        node = firstChild[node];
+                    } else {
+                        while (node != start && nextSibling[node] == NONE) {
+                            node = parent[node];
+                        }
+                        node = node == start ? NONE : nextSibling[node];
+                    }
+                    if (node != NONE && wordId[node] != NONE) {
+                        return wordId[node];
+                    }
+                }
+                return NONE;
+            }
+
+            @Override
+            public boolean hasNext() {
+                return next != NONE;
+            }
+
+            @Override
+            public int nextInt() {
+                if (next == NONE) {
+                    throw new NoSuchElementException();
+                }
+                int id = next;
+                next = advance();
+                return id;
+            }
+        };
+    }
+
+    private boolean isWithin(int node, int ancestor) {
+        for (int n = node; n != NONE; n = parent[n]) {
+            if (n == ancestor) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public int countWithPrefix(String prefix) {
+        int node = findNode(prefix);
+        return node == NONE ? 0 : wordsBelow[node];
+    }
+
+    @Override
+    public String wordOf(int id) {
+        int length = 0;
+        for (int node = wordNode[id]; node != ROOT; node = parent[node]) {
+            length++;
+        }
+        char[] word = new char[length];
+        for (int node = wordNode[id]; node != ROOT; node = parent[node]) {
+            word[--length] = label[node];
+        }
+        return new String(word);
+    }
+
+    @Override
+    public int size() {
+        return wordCount;
+    }
+
+    @Override
+    public int nodeCount() {
+        return nodeCount;
+    }
+
+    /**
+     * Heap and prefix-walk comparison against the HashMap and DAWG backends.
+     * Usage: java ArrayWordTrie [wordCount]
+     */
+    public static void main(String[] args) {
+        int wordCount = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        System.out.println("=== Trie Backend Benchmark (" + wordCount + " words) ===\n");
+
+        List<String> words = syntheticVocabulary(wordCount);
+        List<String> sortedWords = new ArrayList<>(words);
+        Collections.sort(sortedWords);
+        String[] prefixes = {"c", "car", "re", "to", "b", "pri"};
+
+        for (int round = 0; round < 3; round++) {
+            long before = usedHeap();
+            long startTime = System.nanoTime();
+            WordTrie trie;
+            if (round == 2) {
+                trie = new DawgWordTrie(sortedWords);
+            } else {
+                trie = round == 0 ? new HashMapWordTrie() : new ArrayWordTrie();
+                for (String word : words) {
+                    trie.insert(word);
+                }
+            }
+            long buildTime = System.nanoTime() - startTime;
+            long heap = usedHeap() - before;
+
+            long walked = 0;
+            startTime = System.nanoTime();
+            for (int repeat = 0; repeat < 5; repeat++) {
+                for (String prefix : prefixes) {
+                    PrimitiveIterator.OfInt ids = trie.wordsWithPrefix(prefix);
+                    while (ids.hasNext()) {
+                        walked += ids.nextInt();
+                    }
+                }
+            }
+            long walkTime = System.nanoTime() - startTime;
+
+            System.out.println(trie.getClass().getSimpleName() + ":");
+            System.out.println("  Words: " + trie.size() + ", nodes: " + trie.nodeCount());
+            System.out.println("  Heap: " + heap / (1024 * 1024) + " MB (" + heap / trie.nodeCount() + " bytes/node)");
+            System.out.println("  Build time: " + buildTime / 1_000_000 + " ms");
+            System.out.println("  Prefix walk time: " + walkTime / 1_000_000 + " ms (checksum " + walked + ")");
+        }
+    }
+
+    private static List<String> syntheticVocabulary(int count) {
+        Random random = new Random(42);
+        Set<String> words = new HashSet<>();
+        String[] stems = {"car", "rent", "price", "loca", "vehi", "toro", "budg", "cana", "pick", "retu"};
+        String[] suffixes = {"", "s", "ing", "tion", "al", "als", "er", "ers", "ed", "able"};
+        while (words.size() < count) {
+            StringBuilder word = new StringBuilder(stems[random.nextInt(stems.length)]);
+            int extra = 2 + random.nextInt(5);
+            for (int i = 0; i < extra; i++) {
+                word.append((char) ('a' + random.nextInt(26)));
+            }
+            word.append(suffixes[random.nextInt(suffixes.length)]);
+            words.add(word.toString());
+        }
+        return new ArrayList<>(words);
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
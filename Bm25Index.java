@@ -0,0 +1,442 @@
+import java.util.*;
+
+/**
+ * Inverted index for ranked retrieval: per term a postings list of (document id, term frequency)
+ * in ascending document order, plus every document's length in tokens. Documents are tokenized
+ * with CsvTokenizer, so terms are lowercase words of at least three letters.
+ *
+ * Queries score with BM25 (or TF-IDF) and return the top K documents using MaxScore pruning:
+ * query terms are ordered by their score upper bound, and the terms whose bounds together can't
+ * lift a document above the current K-th best score are "non-essential" - they never produce
+ * candidates and are only probed (by binary search) for documents found through the other terms,
+ * and only while the document can still make it. Query cost follows the postings of the
+ * essential terms, not the number of documents.
+ *
+ * A term's upper bound needs no pass over its postings: BM25 grows with tf and shrinks with document
+ * length, so it is bounded by the term's largest tf in the shortest document of the index.
+ *
+ * Documents can be removed by name in time proportional to their distinct terms: the document is
+ * marked removed, its length and term document frequencies are taken out of the statistics, and its
+ * postings are skipped by queries. The largest tf and shortest length stay valid bounds, just looser.
+ * Once more than half of the documents are removed, the index is compacted (ids renumbered, dead
+ * postings dropped, bounds recomputed), so the cost is amortized over the removals. An updated
+ * document is removed and added again under a new id, which keeps the postings in document order.
+ *
+ * Not thread safe for updates: callers must not search while documents are added or removed.
+ *
+ * Assignment 3
+ */
+public class Bm25Index {
+
+    public enum Scoring {
+        BM25,
+        TF_IDF
+    }
+
+    public static final double K1 = 1.2;
+    public static final double B = 0.75;
+
+    /**
+     * A ranked document with the frequency of every query term in it.
+     */
+    public static class Hit {
+        public final int document;
+        public final double score;
+        public final int[] termFrequencies;
+
+        Hit(int document, double score, int[] termFrequencies) {
+            this.document = document;
+            this.score = score;
+            this.termFrequencies = termFrequencies;
+        }
+    }
+
+    /**
+     * Work done by the last search: documents fully or partly scored and postings visited.
+     */
+    public static class SearchStatistics {
+        public int candidates;
+        public int fullyScored;
+        public long postingsVisited;
+        public long postingsTotal;
+    }
+
+    private final CsvTokenizer.TermDictionary terms = new CsvTokenizer.TermDictionary();
+    private int[][] postingDocuments = new int[256][];
+    private int[][] postingFrequencies = new int[256][];
+    private int[] postingSizes = new int[256];
+    private int[] maxFrequency = new int[256];
+    private int[] documentFrequency = new int[256];  // documents still in the index per term
+
+    private List<String> documentNames = new ArrayList<>();
+    private final Map<String, Integer> documentIds = new HashMap<>();
+    private int[] documentLengths = new int[64];
+    private int[][] documentTerms = new int[64][];  // distinct terms per document, to undo its statistics
+    private boolean[] removed = new boolean[64];
+    private int removedCount;
+    private long totalLength;
+    private int minDocumentLength = Integer.MAX_VALUE;
+
+    private volatile SearchStatistics lastSearch = new SearchStatistics();
+
+    /**
+     * Adds a document and returns its id (ids are assigned in increasing order).
+     *
+     * @throws IllegalArgumentException if a document with this name is already indexed
+     */
+    public int addDocument(String name, CharSequence content) {
+        if (documentIds.containsKey(name)) {
+            throw new IllegalArgumentException("Document already indexed: " + name);
+        }
+        int document = documentNames.size();
+        documentNames.add(name);
+        documentIds.put(name, document);
+        Map<Integer, int[]> frequencies = new LinkedHashMap<>();
+        int[] length = new int[1];
+        CsvTokenizer.tokenize(content, (buffer, offset, tokenLength) -> {
+            frequencies.computeIfAbsent(terms.intern(buffer, offset, tokenLength), id -> new int[1])[0]++;
+            length[0]++;
+        });
+
+        if (document == documentLengths.length) {
+            documentLengths = Arrays.copyOf(documentLengths, document * 2);
+            documentTerms = Arrays.copyOf(documentTerms, document * 2);
+            removed = Arrays.copyOf(removed, document * 2);
+        }
+        documentLengths[document] = length[0];
+        totalLength += length[0];
+        minDocumentLength = Math.min(minDocumentLength, length[0]);
+
+        int[] distinctTerms = new int[frequencies.size()];
+        int i = 0;
+        for (Map.Entry<Integer, int[]> entry : frequencies.entrySet()) {
+            addPosting(entry.getKey(), document, entry.getValue()[0]);
+            documentFrequency[entry.getKey()]++;
+            distinctTerms[i++] = entry.getKey();
+        }
+        documentTerms[document] = distinctTerms;
+        return document;
+    }
+
+    /**
+     * Removes a document by name; false if no such document is indexed.
+     */
+    public boolean removeDocument(String name) {
+        Integer document = documentIds.remove(name);
+        if (document == null) {
+            return false;
+        }
+        removed[document] = true;
+        removedCount++;
+        totalLength -= documentLengths[document];
+        for (int term : documentTerms[document]) {
+            documentFrequency[term]--;
+        }
+        documentTerms[document] = null;
+        if (removedCount > 64 && removedCount * 2 > documentNames.size()) {
+            compact();
+        }
+        return true;
+    }
+
+    public boolean containsDocument(String name) {
+        return documentIds.containsKey(name);
+    }
+
+    /**
+     * Renumbers the remaining documents from 0 and drops the postings of removed ones.
+     */
+    private void compact() {
+        int limit = documentNames.size();
+        int[] newId = new int[limit];
+        List<String> names = new ArrayList<>();
+        int live = 0;
+        for (int document = 0; document < limit; document++) {
+            if (removed[document]) {
+                newId[document] = -1;
+                continue;
+            }
+            newId[document] = live;
+            names.add(documentNames.get(document));
+            documentIds.put(documentNames.get(document), live);
+            documentLengths[live] = documentLengths[document];
+            documentTerms[live] = documentTerms[document];
+            live++;
+        }
+        documentNames = names;
+        Arrays.fill(documentTerms, live, limit, null);
+        Arrays.fill(removed, 0, limit, false);
+        removedCount = 0;
+        minDocumentLength = Integer.MAX_VALUE;
+        for (int document = 0; document < live; document++) {
+            minDocumentLength = Math.min(minDocumentLength, documentLengths[document]);
+        }
+
+        for (int term = 0; term < postingSizes.length; term++) {
+            int kept = 0;
+            maxFrequency[term] = 0;
+            for (int i = 0; i < postingSizes[term]; i++) {
+                int document = newId[postingDocuments[term][i]];
+                if (document >= 0) {
+                    postingDocuments[term][kept] = document;
+                    postingFrequencies[term][kept] = postingFrequencies[term][i];
+                    maxFrequency[term] = Math.max(maxFrequency[term], postingFrequencies[term][i]);
+                    kept++;
+                }
+            }
+            postingSizes[term] = kept;
+        }
+    }
+
+    private void addPosting(int term, int document, int frequency) {
+        if (term >= postingSizes.length) {
+            int capacity = Math.max(term + 1, postingSizes.length * 2);
+            postingDocuments = Arrays.copyOf(postingDocuments, capacity);
+            postingFrequencies = Arrays.copyOf(postingFrequencies, capacity);
+            postingSizes = Arrays.copyOf(postingSizes, capacity);
+            maxFrequency = Arrays.copyOf(maxFrequency, capacity);
+            documentFrequency = Arrays.copyOf(documentFrequency, capacity);
+        }
+        int size = postingSizes[term];
+        if (postingDocuments[term] == null) {
+            postingDocuments[term] = new int[4];
+            postingFrequencies[term] = new int[4];
+        } else if (size == postingDocuments[term].length) {
+            postingDocuments[term] = Arrays.copyOf(postingDocuments[term], size * 2);
+            postingFrequencies[term] = Arrays.copyOf(postingFrequencies[term], size * 2);
+        }
+        postingDocuments[term][size] = document;
+        postingFrequencies[term][size] = frequency;
+        postingSizes[term] = size + 1;
+        maxFrequency[term] = Math.max(maxFrequency[term], frequency);
+    }
+
+    /**
+     * Documents in the index (removed ones excluded).
+     */
+    public int documentCount() {
+        return documentNames.size() - removedCount;
+    }
+
+    public String documentName(int document) {
+        return documentNames.get(document);
+    }
+
+    public int documentLength(int document) {
+        return documentLengths[document];
+    }
+
+    public int termCount() {
+        return terms.size();
+    }
+
+    public SearchStatistics lastSearchStatistics() {
+        return lastSearch;
+    }
+
+    private double idf(Scoring scoring, int documentFrequency) {
+        int n = documentCount();
+        if (scoring == Scoring.BM25) {
+            return Math.log(1 + (n - documentFrequency + 0.5) / (documentFrequency + 0.5));
+        }
+        return Math.log(1 + (double) n / documentFrequency);
+    }
+
+    private double termScore(Scoring scoring, double idf, int frequency, int documentLength, double averageLength) {
+        if (scoring == Scoring.BM25) {
+            double norm = K1 * (1 - B + B * documentLength / averageLength);
+            return idf * frequency * (K1 + 1) / (frequency + norm);
+        }
+        return idf * (1 + Math.log(frequency));
+    }
+
+    /**
+     * The k best documents for the query terms, best first (ties by document id). Terms are
+     * normalized like the documents; unknown terms and duplicates add nothing.
+     *
+     * @return hits whose termFrequencies are indexed like queryTerms
+     */
+    public List<Hit> search(List<String> queryTerms, int k, Scoring scoring) {
+        SearchStatistics statistics = new SearchStatistics();
+        lastSearch = statistics;
+        int n = documentCount();
+        if (k <= 0 || n == 0) {
+            return new ArrayList<>();
+        }
+        double averageLength = Math.max(1e-9, (double) totalLength / n);
+
+        // One cursor per distinct known term
+        List<Cursor> cursors = new ArrayList<>();
+        Map<Integer, Cursor> byTerm = new HashMap<>();
+        for (int q = 0; q < queryTerms.size(); q++) {
+            int term = terms.find(queryTerms.get(q));
+            if (term < 0 || documentFrequency[term] == 0) {
+                continue;
+            }
+            Cursor cursor = byTerm.get(term);
+            if (cursor == null) {
+                double idf = idf(scoring, documentFrequency[term]);
+                double upperBound = termScore(scoring, idf, maxFrequency[term], minDocumentLength, averageLength);
+                cursor = new Cursor(term, idf, upperBound);
+                byTerm.put(term, cursor);
+                cursors.add(cursor);
+                statistics.postingsTotal += postingSizes[term];
+            }
+            cursor.queryPositions.add(q);
+        }
+        cursors.sort((a, b) -> Double.compare(a.upperBound, b.upperBound));
+        int m = cursors.size();
+        double[] boundPrefix = new double[m + 1];  // boundPrefix[i] = sum of the i smallest bounds
+        for (int i = 0; i < m; i++) {
+            boundPrefix[i + 1] = boundPrefix[i] + cursors.get(i).upperBound;
+        }
+
+        PriorityQueue<Hit> heap = new PriorityQueue<>(k + 1, Bm25Index::compareWorstFirst);
+        double threshold = 0;
+        int firstEssential = 0;  // cursors[0 .. firstEssential) are non-essential
+
+        while (true) {
+            // Next candidate: smallest current document among the essential cursors
+            int document = Integer.MAX_VALUE;
+            for (int i = firstEssential; i < m; i++) {
+                document = Math.min(document, cursors.get(i).document());
+            }
+            if (document == Integer.MAX_VALUE) {
+                break;
+            }
+            if (removed[document]) {
+                for (int i = firstEssential; i < m; i++) {
+                    Cursor cursor = cursors.get(i);
+                    if (cursor.document() == document) {
+                        cursor.position++;
+                        statistics.postingsVisited++;
+                    }
+                }
+                continue;
+            }
+            statistics.candidates++;
+
+            int length = documentLengths[document];
+            double score = 0;
+            for (int i = firstEssential; i < m; i++) {
+                Cursor cursor = cursors.get(i);
+                if (cursor.document() == document) {
+                    cursor.frequency = postingFrequencies[cursor.term][cursor.position];
+                    score += termScore(scoring, cursor.idf, cursor.frequency, length, averageLength);
+                    cursor.position++;
+                    statistics.postingsVisited++;
+                } else {
+                    cursor.frequency = 0;
+                }
+            }
+            // Non-essential terms, largest bound first, while the document can still enter the top k
+            boolean complete = true;
+            for (int i = firstEssential - 1; i >= 0; i--) {
+                Cursor cursor = cursors.get(i);
+                if (heap.size() == k && score + boundPrefix[i + 1] <= threshold) {
+                    complete = false;
+                    break;
+                }
+                statistics.postingsVisited += cursor.advanceTo(document);
+                if (cursor.document() == document) {
+                    cursor.frequency = postingFrequencies[cursor.term][cursor.position];
+                    score += termScore(scoring, cursor.idf, cursor.frequency, length, averageLength);
+                } else {
+                    cursor.frequency = 0;
+                }
+            }
+            if (!complete) {
+                continue;
+            }
+            statistics.fullyScored++;
+
+            // Candidates come in increasing document order, so on a tie the one in the heap stays
+            if (heap.size() < k || score > threshold) {
+                int[] frequencies = new int[queryTerms.size()];
+                for (Cursor cursor : cursors) {
+                    for (int q : cursor.queryPositions) {
+                        frequencies[q] = cursor.frequency;
+                    }
+                }
+                heap.add(new Hit(document, score, frequencies));
+                if (heap.size() > k) {
+                    heap.poll();
+                }
+                if (heap.size() == k) {
+                    threshold = heap.peek().score;
+                    // Grow the non-essential prefix while its bounds can't beat the threshold on their own
+                    while (firstEssential < m && boundPrefix[firstEssential + 1] <= threshold) {
+                        firstEssential++;
+                    }
+                }
+            }
+        }
+
+        List<Hit> hits = new ArrayList<>(heap);
+        hits.sort((a, b) -> compareWorstFirst(b, a));
+        return hits;
+    }
+
+    // Lower score first; on equal scores the larger document id counts as worse
+    private static int compareWorstFirst(Hit a, Hit b) {
+        int byScore = Double.compare(a.score, b.score);
+        return byScore != 0 ? byScore : Integer.compare(b.document, a.document);
+    }
+
+    /**
+     * Position in one term's postings during a query.
+     */
+    private class Cursor {
+        final int term;
+        final double idf;
+        final double upperBound;
+        final List<Integer> queryPositions = new ArrayList<>();
+        int position;
+        int frequency;
+
+        Cursor(int term, double idf, double upperBound) {
+            this.term = term;
+            this.idf = idf;
+            this.upperBound = upperBound;
+        }
+
+        int document() {
+            return position < postingSizes[term] ? postingDocuments[term][position] : Integer.MAX_VALUE;
+        }
+
+        /**
+         * Moves to the first posting with document >= target (galloping, then binary search)
+         * and returns the number of postings probed.
+         */
+        int advanceTo(int target) {
+            int[] list = postingDocuments[term];
+            int size = postingSizes[term];
+            if (position >= size || list[position] >= target) {
+                return 1;
+            }
+            int probes = 1;
+            int step = 1;
+            int low = position;
+            int high = position + 1;
+            while (high < size && list[high] < target) {
+                low = high;
+                step <<= 1;
+                high = low + step;
+                probes++;
+            }
+            high = Math.min(high, size);
+            // list[low] < target, and list[high] >= target or high == size
+            while (low + 1 < high) {
+                int middle = (low + high) >>> 1;
+                if (list[middle] < target) {
+                    low = middle;
+                } else {
+                    high = middle;
+                }
+                probes++;
+            }
+            position = high;
+            return probes;
+        }
+    }
+}
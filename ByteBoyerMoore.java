@@ -0,0 +1,228 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Byte-level Boyer-Moore for counting a word directly in (memory-mapped) file bytes, so the file
+ * never has to be decoded into a lowercased UTF-16 String on the heap. ASCII letters are folded
+ * to lowercase on the fly while comparing; the pattern is matched as its UTF-8 bytes.
+ *
+ * Variants:
+ * - HORSPOOL: bad-character shift on the byte under the window's last position (256-entry table)
+ * - GOOD_SUFFIX: full Boyer-Moore, the larger of the bad-character and (strong) good-suffix shifts,
+ *   which also shifts by the pattern's period after a match instead of by 1
+ * - SWAR: no shifts at all - SwarByteSearch filters eight alignments per step on the first and
+ *   last pattern byte and verifies the rest; fastest for the short words the tasks look up
+ * All of them count every occurrence, overlapping ones included.
+ *
+ * Assignment 3
+ */
+public class ByteBoyerMoore {
+
+    public enum Variant {
+        HORSPOOL,
+        GOOD_SUFFIX,
+        SWAR
+    }
+
+    // Largest piece of a file mapped at once (a MappedByteBuffer is limited to 2 GB)
+    private static final long WINDOW_BYTES = 1L << 30;
+
+    private static final byte[] FOLD = new byte[256];
+
+    static {
+        for (int b = 0; b < 256; b++) {
+            FOLD[b] = (byte) (b >= 'A' && b <= 'Z' ? b | 0x20 : b);
+        }
+    }
+
+    private final byte[] pattern;
+    private final Variant variant;
+    private final int[] badChar;
+    private final int[] goodSuffix;
+
+    public ByteBoyerMoore(String pattern, Variant variant) {
+        byte[] bytes = pattern.getBytes(StandardCharsets.UTF_8);
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = FOLD[bytes[i] & 0xFF];
+        }
+        this.pattern = bytes;
+        this.variant = variant;
+        this.badChar = buildBadCharTable(bytes);
+        this.goodSuffix = variant == Variant.GOOD_SUFFIX ? buildGoodSuffixTable(bytes) : null;
+    }
+
+    /**
+     * Shift for the byte that sits under the last pattern position: distance from its last
+     * occurrence in pattern[0 .. m-2] to the end, or m if it doesn't occur there.
+     */
+    private static int[] buildBadCharTable(byte[] pattern) {
+        int m = pattern.length;
+        int[] table = new int[256];
+        Arrays.fill(table, m);
+        for (int i = 0; i < m - 1; i++) {
+            table[pattern[i] & 0xFF] = m - 1 - i;
+        }
+        // Uppercase text bytes are looked up directly, so they get their lowercase letter's shift
+        for (int b = 'A'; b <= 'Z'; b++) {
+            table[b] = table[b | 0x20];
+        }
+        return table;
+    }
+
+    /**
+     * Strong good-suffix shifts: goodSuffix[i] is the shift after a mismatch at position i
+     * (pattern[i+1 ..] matched); goodSuffix[0] is also the shift after a full match.
+     */
+    private static int[] buildGoodSuffixTable(byte[] pattern) {
+        int m = pattern.length;
+        int[] shift = new int[m];
+        if (m == 0) {
+            return shift;
+        }
+
+        // suffix[i] = length of the longest common suffix of pattern[0 .. i] and the whole pattern
+        int[] suffix = new int[m];
+        suffix[m - 1] = m;
+        int g = m - 1;
+        int f = m - 1;
+        for (int i = m - 2; i >= 0; i--) {
+            if (i > g && suffix[i + m - 1 - f] < i - g) {
+                suffix[i] = suffix[i + m - 1 - f];
+            } else {
+                if (i < g) {
+                    g = i;
+                }
+                f = i;
+                while (g >= 0 && pattern[g] == pattern[g + m - 1 - f]) {
+                    g--;
+                }
+                suffix[i] = f - g;
+            }
+        }
+
+        Arrays.fill(shift, m);
+        // Matched suffix longer than any border: shift to the longest prefix that is also a suffix
+        int j = 0;
+        for (int i = m - 1; i >= 0; i--) {
+            if (suffix[i] == i + 1) {
+                for (; j < m - 1 - i; j++) {
+                    if (shift[j] == m) {
+                        shift[j] = m - 1 - i;
+                    }
+                }
+            }
+        }
+        // Matched suffix reoccurs inside the pattern with a different byte before it
+        for (int i = 0; i <= m - 2; i++) {
+            shift[m - 1 - suffix[i]] = m - 1 - i;
+        }
+        return shift;
+    }
+
+    public Variant variant() {
+        return variant;
+    }
+
+    /**
+     * Occurrences in the buffer between its position and limit.
+     */
+    public long count(ByteBuffer text) {
+        return count(text, text.position(), text.limit());
+    }
+
+    /**
+     * Occurrences that start in [from, to). Bytes up to the buffer's limit may be read, so a
+     * match starting just before "to" still completes when the buffer extends past it - which is
+     * what lets a caller count adjacent pieces of a larger text separately and add the results.
+     */
+    public long count(ByteBuffer text, int from, int to) {
+        int m = pattern.length;
+        int limit = text.limit();
+        if (m == 0 || to <= from) {
+            return 0;
+        }
+        // Last alignment that still fits in the buffer and starts before "to"
+        int lastStart = Math.min(to - 1, limit - m);
+        if (variant == Variant.SWAR) {
+            return SwarByteSearch.count(pattern, text, from, to);
+        }
+        long count = 0;
+        int s = from;
+
+        if (variant == Variant.HORSPOOL) {
+            while (s <= lastStart) {
+                int j = m - 1;
+                while (j >= 0 && FOLD[text.get(s + j) & 0xFF] == pattern[j]) {
+                    j--;
+                }
+                if (j < 0) {
+                    count++;
+                }
+                s += badChar[text.get(s + m - 1) & 0xFF];
+            }
+            return count;
+        }
+
+        while (s <= lastStart) {
+            int j = m - 1;
+            while (j >= 0 && FOLD[text.get(s + j) & 0xFF] == pattern[j]) {
+                j--;
+            }
+            if (j < 0) {
+                count++;
+                s += goodSuffix[0];
+            } else {
+                // Bad-character rule for the mismatched byte itself: align its last occurrence
+                // before the window's end (badChar is relative to the last position)
+                int badCharShift = badChar[text.get(s + j) & 0xFF] - (m - 1 - j);
+                s += Math.max(goodSuffix[j], badCharShift);
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Occurrences in a whole file, read through memory mappings of at most WINDOW_BYTES.
+     * Consecutive windows overlap by m - 1 bytes and each one only counts the matches starting
+     * in its own part, so every occurrence is counted exactly once.
+     */
+    public long count(File file) throws IOException {
+        return count(file, null);
+    }
+
+    /**
+     * Same count with every window split into chunks counted on the pool (null counts serially).
+     */
+    public long count(File file, ForkJoinPool pool) throws IOException {
+        int m = pattern.length;
+        if (m == 0) {
+            return 0;
+        }
+        long count = 0;
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            for (long start = 0; start < size; start += WINDOW_BYTES) {
+                long length = Math.min(size - start, WINDOW_BYTES + m - 1);
+                ByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, start, length);
+                int owned = (int) Math.min(WINDOW_BYTES, length);
+                count += pool == null ? count(window, 0, owned)
+                    : ParallelMatchCounter.count(pool, owned, (from, to) -> count(window, from, to));
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Maps a whole file (up to 2 GB) read-only.
+     */
+    public static ByteBuffer map(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+    }
+}
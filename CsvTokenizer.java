@@ -0,0 +1,370 @@
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Regex-free tokenizer shared by the tasks. Produces exactly the words of the original
+ * {@code split("[,\\s\\|\\-/]+")} + {@code replaceAll("[^a-zA-Z]", "").toLowerCase()} + length check,
+ * in one pass and without intermediate Strings:
+ * - ',', whitespace, '|', '-' and '/' end a token (line breaks too, as Scanner lines did)
+ * - ASCII letters are kept, lowercased; every other character is dropped without splitting
+ * - tokens shorter than MIN_LENGTH are skipped
+ *
+ * Files are scanned as raw bytes: all delimiters and letters are ASCII, so UTF-8 multi-byte
+ * characters simply fall into the "dropped" class and nothing has to be decoded.
+ * Tokens are handed to a TokenSink as a view (buffer, offset, length) that is only valid during the call;
+ * TermDictionary turns such views into dense term ids with one String per distinct term.
+ *
+ * Assignment 3
+ */
+public class CsvTokenizer {
+
+    public static final int MIN_LENGTH = 3;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    // Character classes for the 128 ASCII codes
+    private static final byte DROP = 0;
+    private static final byte LETTER = 1;
+    private static final byte DELIMITER = 2;
+    private static final byte[] CLASSES = new byte[128];
+
+    static {
+        for (char ch = 'a'; ch <= 'z'; ch++) {
+            CLASSES[ch] = LETTER;
+            CLASSES[ch - 'a' + 'A'] = LETTER;
+        }
+        for (char ch : new char[] {',', ' ', '\t', '\n', '\u000B', '\f', '\r', '|', '-', '/'}) {
+            CLASSES[ch] = DELIMITER;
+        }
+    }
+
+    /**
+     * Receives each token as buffer[offset .. offset + length), lowercase ASCII letters only.
+     */
+    public interface TokenSink {
+        void token(char[] buffer, int offset, int length);
+    }
+
+    private CsvTokenizer() {
+    }
+
+    /**
+     * Tokenizes a whole file, optionally skipping its first line (the CSV header).
+     */
+    public static void tokenizeFile(File file, boolean skipHeader, TokenSink sink) throws IOException {
+        try (InputStream in = new FileInputStream(file)) {
+            tokenizeStream(in, skipHeader, sink);
+        }
+    }
+
+    public static void tokenizeStream(InputStream in, boolean skipHeader, TokenSink sink) throws IOException {
+        byte[] bytes = new byte[BUFFER_SIZE];
+        char[] token = new char[64];
+        int length = 0;
+        boolean inHeader = skipHeader;
+        // Progress through the UTF-8 forms of the line separators Scanner also broke lines on:
+        // U+0085 (C2 85), U+2028 (E2 80 A8) and U+2029 (E2 80 A9)
+        int separator = 0;
+
+        int read;
+        while ((read = in.read(bytes)) > 0) {
+            for (int i = 0; i < read; i++) {
+                int b = bytes[i] & 0xFF;
+                boolean lineBreak = b == '\n' || b == '\r';
+                if (b >= 0x80) {
+                    if (separator == 0) {
+                        separator = b == 0xC2 ? 0xC2 : b == 0xE2 ? 0xE2 : 0;
+                    } else if (separator == 0xE2 && b == 0x80) {
+                        separator = 0xE280;
+                    } else {
+                        lineBreak = (separator == 0xC2 && b == 0x85) || (separator == 0xE280 && (b == 0xA8 || b == 0xA9));
+                        separator = 0;
+                    }
+                } else {
+                    separator = 0;
+                }
+
+                if (inHeader) {
+                    inHeader = !lineBreak;
+                    continue;
+                }
+                byte type = b < 0x80 ? CLASSES[b] : DROP;
+                if (type == LETTER) {
+                    if (length == token.length) {
+                        token = Arrays.copyOf(token, length * 2);
+                    }
+                    token[length++] = (char) (b | 0x20);
+                } else if (type == DELIMITER || lineBreak) {
+                    if (length >= MIN_LENGTH) {
+                        sink.token(token, 0, length);
+                    }
+                    length = 0;
+                }
+            }
+        }
+        if (length >= MIN_LENGTH) {
+            sink.token(token, 0, length);
+        }
+    }
+
+    /**
+     * Tokenizes in-memory text (a query, a document, one line).
+     */
+    public static void tokenize(CharSequence text, TokenSink sink) {
+        char[] token = new char[64];
+        int length = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char ch = text.charAt(i);
+            byte type = ch < 0x80 ? CLASSES[ch] : DROP;
+            if (type == LETTER) {
+                if (length == token.length) {
+                    token = Arrays.copyOf(token, length * 2);
+                }
+                token[length++] = (char) (ch | 0x20);
+            } else if (type == DELIMITER) {
+                if (length >= MIN_LENGTH) {
+                    sink.token(token, 0, length);
+                }
+                length = 0;
+            }
+        }
+        if (length >= MIN_LENGTH) {
+            sink.token(token, 0, length);
+        }
+    }
+
+    /**
+     * The tokens of a text as Strings, in order.
+     */
+    public static List<String> tokens(CharSequence text) {
+        List<String> tokens = new ArrayList<>();
+        tokenize(text, (buffer, offset, length) -> tokens.add(new String(buffer, offset, length)));
+        return tokens;
+    }
+
+    /**
+     * Reads a UTF-8 file the way the Scanner loops did: every line lowercased and followed by a
+     * space (line breaks are \r\n, \n, \r, U+0085, U+2028 and U+2029). Used by the tasks that search
+     * the raw text rather than its tokens.
+     */
+    public static String readContent(File file) throws IOException {
+        StringBuilder content = new StringBuilder((int) Math.min(Integer.MAX_VALUE - 16, file.length() + 16));
+        StringBuilder line = new StringBuilder();
+        char[] chars = new char[BUFFER_SIZE];
+        boolean afterCarriageReturn = false;
+        try (Reader reader = new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8)) {
+            int read;
+            while ((read = reader.read(chars)) > 0) {
+                for (int i = 0; i < read; i++) {
+                    char ch = chars[i];
+                    if (ch == '\n' && afterCarriageReturn) {
+                        afterCarriageReturn = false;
+                        continue;
+                    }
+                    afterCarriageReturn = ch == '\r';
+                    if (ch == '\n' || ch == '\r' || ch == '\u0085' || ch == '\u2028' || ch == '\u2029') {
+                        content.append(line.toString().toLowerCase()).append(' ');
+                        line.setLength(0);
+                    } else {
+                        line.append(ch);
+                    }
+                }
+            }
+        }
+        if (line.length() > 0) {
+            content.append(line.toString().toLowerCase()).append(' ');
+        }
+        return content.toString();
+    }
+
+    /**
+     * The content readContent would return for a file holding this text.
+     */
+    public static String normalizeContent(CharSequence text) {
+        StringBuilder content = new StringBuilder(text.length() + 16);
+        int lineStart = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char ch = text.charAt(i);
+            if (ch == '\n' || ch == '\r' || ch == '\u0085' || ch == '\u2028' || ch == '\u2029') {
+                content.append(text.subSequence(lineStart, i).toString().toLowerCase()).append(' ');
+                if (ch == '\r' && i + 1 < text.length() && text.charAt(i + 1) == '\n') {
+                    i++;
+                }
+                lineStart = i + 1;
+            }
+        }
+        if (lineStart < text.length()) {
+            content.append(text.subSequence(lineStart, text.length()).toString().toLowerCase()).append(' ');
+        }
+        return content.toString();
+    }
+
+    /**
+     * Open-addressing table from token views to dense term ids (0, 1, 2, ...). A token that is
+     * already known costs one hash and one comparison - no String is created for it.
+     */
+    public static class TermDictionary {
+        private String[] terms = new String[256];
+        private int[] hashes = new int[256];
+        private int[] slots = new int[512];  // term id + 1, 0 = empty
+        private int size;
+
+        /**
+         * Returns the id of the token, adding it if it is new (then the id equals the old size()).
+         */
+        public int intern(char[] buffer, int offset, int length) {
+            int hash = 0;
+            for (int i = offset; i < offset + length; i++) {
+                hash = 31 * hash + buffer[i];
+            }
+            int mask = slots.length - 1;
+            for (int slot = mix(hash) & mask; ; slot = (slot + 1) & mask) {
+                int id = slots[slot] - 1;
+                if (id < 0) {
+                    return add(new String(buffer, offset, length), hash, slot);
+                }
+                if (hashes[id] == hash && matches(terms[id], buffer, offset, length)) {
+                    return id;
+                }
+            }
+        }
+
+        /**
+         * Returns the id of a term, or -1 if it was never interned.
+         */
+        public int find(String term) {
+            int hash = term.hashCode();  // same polynomial as intern
+            int mask = slots.length - 1;
+            for (int slot = mix(hash) & mask; ; slot = (slot + 1) & mask) {
+                int id = slots[slot] - 1;
+                if (id < 0) {
+                    return -1;
+                }
+                if (hashes[id] == hash && terms[id].equals(term)) {
+                    return id;
+                }
+            }
+        }
+
+        public String term(int id) {
+            return terms[id];
+        }
+
+        public int size() {
+            return size;
+        }
+
+        private int add(String term, int hash, int slot) {
+            if (size == terms.length) {
+                terms = Arrays.copyOf(terms, size * 2);
+                hashes = Arrays.copyOf(hashes, size * 2);
+            }
+            int id = size++;
+            terms[id] = term;
+            hashes[id] = hash;
+            slots[slot] = id + 1;
+            if (size * 2 > slots.length) {
+                rehash();
+            }
+            return id;
+        }
+
+        private void rehash() {
+            slots = new int[slots.length * 2];
+            int mask = slots.length - 1;
+            for (int id = 0; id < size; id++) {
+                int slot = mix(hashes[id]) & mask;
+                while (slots[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                slots[slot] = id + 1;
+            }
+        }
+
+        private static boolean matches(String term, char[] buffer, int offset, int length) {
+            if (term.length() != length) {
+                return false;
+            }
+            for (int i = 0; i < length; i++) {
+                if (term.charAt(i) != buffer[offset + i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        // Spreads the String-style hash so that nearby values don't cluster in the table
+        private static int mix(int hash) {
+            hash *= 0x9E3779B9;
+            return hash ^ (hash >>> 16);
+        }
+    }
+
+    /**
+     * Token throughput of the regex path the loaders used against this tokenizer.
+     * Usage: java CsvTokenizer [repeats]
+     */
+    public static void main(String[] args) throws IOException {
+        int repeats = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        String[] csvFiles = {"swiftride_data 2.csv", "prabh.csv", "kayak_scraped_data.csv", "nikhil.csv", "happy.csv"};
+        List<File> files = new ArrayList<>();
+        long bytes = 0;
+        for (String fileName : csvFiles) {
+            File file = new File(fileName);
+            files.add(file);
+            bytes += file.length();
+        }
+        System.out.println("=== Tokenizer Benchmark (" + repeats + " passes over " + bytes / 1024 + " KB) ===\n");
+
+        for (int round = 0; round < 2; round++) {
+            long regexTokens = 0;
+            long regexHash = 0;
+            long startTime = System.nanoTime();
+            for (int repeat = 0; repeat < repeats; repeat++) {
+                for (File file : files) {
+                    try (Scanner scanner = new Scanner(file, "UTF-8")) {
+                        if (scanner.hasNextLine()) {
+                            scanner.nextLine();
+                        }
+                        while (scanner.hasNextLine()) {
+                            for (String word : scanner.nextLine().split("[,\\s\\|\\-/]+")) {
+                                String cleanWord = word.replaceAll("[^a-zA-Z]", "").toLowerCase();
+                                if (cleanWord.length() > 2) {
+                                    regexTokens++;
+                                    regexHash += cleanWord.hashCode();
+                                }
+                            }
+                        }
+                    }
+                }
+            }
+            long regexTime = System.nanoTime() - startTime;
+
+            long[] streamed = new long[2];
+            TermDictionary terms = new TermDictionary();
+            startTime = System.nanoTime();
+            for (int repeat = 0; repeat < repeats; repeat++) {
+                for (File file : files) {
+                    tokenizeFile(file, true, (buffer, offset, length) -> {
+                        streamed[0]++;
+                        streamed[1] += terms.term(terms.intern(buffer, offset, length)).hashCode();
+                    });
+                }
+            }
+            long streamTime = System.nanoTime() - startTime;
+
+            if (round == 1) {
+                System.out.println("Regex split + replaceAll: " + regexTokens + " tokens in " + regexTime / 1_000_000 + " ms (" +
+                                   perSecond(regexTokens, regexTime) + " tokens/s)");
+                System.out.println("Streaming tokenizer:      " + streamed[0] + " tokens in " + streamTime / 1_000_000 + " ms (" +
+                                   perSecond(streamed[0], streamTime) + " tokens/s, " + terms.size() + " distinct terms)");
+                System.out.println("Same tokens: " + (regexTokens == streamed[0] && regexHash == streamed[1]));
+            }
+        }
+    }
+
+    private static long perSecond(long tokens, long nanos) {
+        return nanos == 0 ? 0 : tokens * 1_000_000_000L / nanos;
+    }
+}
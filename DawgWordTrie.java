@@ -0,0 +1,311 @@
+import java.nio.*;
+import java.util.*;
+
+/**
+ * Read-only WordTrie stored as a minimal acyclic automaton (DAWG).
+ * Built in one pass over a sorted vocabulary (Daciuk et al. incremental construction), so
+ * shared suffixes like "-ing" or "-tion" are stored once instead of once per word.
+ *
+ * Word ids are lexicographic ranks: every state records how many words can be completed from it,
+ * which turns lookups into a minimal perfect hash and makes the words under a prefix one
+ * contiguous id range. Callers attach outputs (frequencies, document sets) through those ids.
+ *
+ * The arrays are held as primitive buffers: heap buffers after a build, or views of a memory-mapped
+ * file when the automaton is opened from a TrieSnapshot, so nothing is rebuilt on startup.
+ *
+ * Assignment 3
+ */
+public class DawgWordTrie implements WordTrie {
+
+    private static final int NONE = -1;
+
+    // Edges of state s are edgeLabel/edgeTarget[edgeStart[s] .. edgeStart[s + 1]), sorted by label
+    private IntBuffer edgeStart;
+    private CharBuffer edgeLabel;
+    private IntBuffer edgeTarget;
+    private ByteBuffer isFinal;
+    private IntBuffer wordsFrom;
+    private int root;
+
+    /**
+     * Mutable state used only while building.
+     */
+    private static class BuildState {
+        int id = NONE;
+        boolean isFinal;
+        StringBuilder labels = new StringBuilder();
+        List<BuildState> targets = new ArrayList<>();
+
+        String signature() {
+            StringBuilder key = new StringBuilder(isFinal ? "1" : "0");
+            for (int i = 0; i < targets.size(); i++) {
+                key.append(labels.charAt(i)).append(targets.get(i).id).append(',');
+            }
+            return key.toString();
+        }
+    }
+
+    /**
+     * @param sortedWords distinct words in ascending order
+     * @throws IllegalArgumentException if the words are not strictly increasing
+     */
+    public DawgWordTrie(Iterable<String> sortedWords) {
+        Map<String, BuildState> register = new HashMap<>();
+        List<BuildState> states = new ArrayList<>();
+        BuildState buildRoot = new BuildState();
+        List<BuildState> path = new ArrayList<>();
+        path.add(buildRoot);
+        String previous = null;
+
+        for (String word : sortedWords) {
+            if (previous != null && previous.compareTo(word) >= 0) {
+                throw new IllegalArgumentException("Words must be sorted and distinct: \"" + previous + "\" then \"" + word + "\"");
+            }
+            int common = 0;
+            if (previous != null) {
+                int limit = Math.min(previous.length(), word.length());
+                while (common < limit && previous.charAt(common) == word.charAt(common)) {
+                    common++;
+                }
+            }
+            minimize(path, common, register, states);
+
+            BuildState current = path.get(path.size() - 1);
+            for (int i = common; i < word.length(); i++) {
+                BuildState next = new BuildState();
+                current.labels.append(word.charAt(i));
+                current.targets.add(next);
+                path.add(next);
+                current = next;
+            }
+            current.isFinal = true;
+            previous = word;
+        }
+        minimize(path, 0, register, states);
+        buildRoot.id = states.size();
+        states.add(buildRoot);
+
+        freeze(states, buildRoot);
+    }
+    
+    /**
+     * Wraps arrays that were already laid out by a build (used by TrieSnapshot on mapped buffers).
+     */
+    DawgWordTrie(IntBuffer edgeStart, CharBuffer edgeLabel, IntBuffer edgeTarget, ByteBuffer isFinal, IntBuffer wordsFrom, int root) {
+        this.edgeStart = edgeStart;
+        this.edgeLabel = edgeLabel;
+        this.edgeTarget = edgeTarget;
+        this.isFinal = isFinal;
+        this.wordsFrom = wordsFrom;
+        this.root = root;
+    }
+
+    /**
+     * Replaces every state on the current path below depth keep with its registered equivalent,
+     * deepest first, registering the ones that have no equivalent yet.
+     */
+    private static void minimize(List<BuildState> path, int keep, Map<String, BuildState> register, List<BuildState> states) {
+        while (path.size() - 1 > keep) {
+            BuildState child = path.remove(path.size() - 1);
+            BuildState parent = path.get(path.size() - 1);
+            String signature = child.signature();
+            BuildState existing = register.get(signature);
+            if (existing != null) {
+                parent.targets.set(parent.targets.size() - 1, existing);
+            } else {
+                child.id = states.size();
+                states.add(child);
+                register.put(signature, child);
+            }
+        }
+    }
+
+    /**
+     * Copies the registered states into flat arrays. States are registered children first,
+     * so word counts can be filled in a single forward pass.
+     */
+    private void freeze(List<BuildState> states, BuildState buildRoot) {
+        int stateCount = states.size();
+        int edgeCount = 0;
+        for (BuildState state : states) {
+            edgeCount += state.targets.size();
+        }
+
+        int[] starts = new int[stateCount + 1];
+        char[] labels = new char[edgeCount];
+        int[] targets = new int[edgeCount];
+        byte[] finals = new byte[stateCount];
+        int[] counts = new int[stateCount];
+
+        int edge = 0;
+        for (BuildState state : states) {
+            int s = state.id;
+            starts[s] = edge;
+            finals[s] = (byte) (state.isFinal ? 1 : 0);
+            int count = state.isFinal ? 1 : 0;
+            for (int i = 0; i < state.targets.size(); i++) {
+                labels[edge] = state.labels.charAt(i);
+                targets[edge] = state.targets.get(i).id;
+                count += counts[targets[edge]];
+                edge++;
+            }
+            counts[s] = count;
+        }
+        starts[stateCount] = edge;
+
+        edgeStart = IntBuffer.wrap(starts);
+        edgeLabel = CharBuffer.wrap(labels);
+        edgeTarget = IntBuffer.wrap(targets);
+        isFinal = ByteBuffer.wrap(finals);
+        wordsFrom = IntBuffer.wrap(counts);
+        root = buildRoot.id;
+    }
+
+    public int root() {
+        return root;
+    }
+
+    public int firstEdge(int state) {
+        return edgeStart.get(state);
+    }
+
+    public int endEdge(int state) {
+        return edgeStart.get(state + 1);
+    }
+
+    public char edgeLabel(int edge) {
+        return edgeLabel.get(edge);
+    }
+
+    public int edgeTarget(int edge) {
+        return edgeTarget.get(edge);
+    }
+
+    public boolean isFinal(int state) {
+        return isFinal.get(state) != 0;
+    }
+
+    /**
+     * Number of words that can be completed from the state.
+     */
+    int wordsFrom(int state) {
+        return wordsFrom.get(state);
+    }
+
+    public int edgeCount() {
+        return edgeLabel.capacity();
+    }
+
+    /**
+     * Follows the prefix from the root. Returns {state, rank of the first word under it},
+     * or null if no word starts with the prefix.
+     */
+    private int[] walk(String prefix) {
+        int state = root;
+        int rank = 0;
+        for (int i = 0; i < prefix.length(); i++) {
+            char ch = prefix.charAt(i);
+            if (isFinal(state)) {
+                rank++;
+            }
+            int next = NONE;
+            for (int e = firstEdge(state); e < endEdge(state); e++) {
+                char label = edgeLabel.get(e);
+                if (label == ch) {
+                    next = edgeTarget.get(e);
+                    break;
+                }
+                if (label > ch) {
+                    break;
+                }
+                rank += wordsFrom.get(edgeTarget.get(e));
+            }
+            if (next == NONE) {
+                return null;
+            }
+            state = next;
+        }
+        return new int[] {state, rank};
+    }
+
+    @Override
+    public int insert(String word) {
+        throw new UnsupportedOperationException("DawgWordTrie is read-only");
+    }
+
+    @Override
+    public int find(String word) {
+        int[] position = walk(word);
+        return position != null && isFinal(position[0]) ? position[1] : NONE;
+    }
+
+    @Override
+    public PrimitiveIterator.OfInt wordsWithPrefix(String prefix, int afterId) {
+        int[] position = walk(prefix);
+        final int from = position == null ? 0 : position[1];
+        final int to = position == null ? 0 : from + wordsFrom.get(position[0]);
+        if (afterId >= 0 && (afterId < from || afterId >= to)) {
+            throw new IllegalArgumentException("Word " + afterId + " does not start with \"" + prefix + "\"");
+        }
+
+        return new PrimitiveIterator.OfInt() {
+            private int next = afterId >= 0 ? afterId + 1 : from;
+
+            @Override
+            public boolean hasNext() {
+                return next < to;
+            }
+
+            @Override
+            public int nextInt() {
+                if (next >= to) {
+                    throw new NoSuchElementException();
+                }
+                return next++;
+            }
+        };
+    }
+
+    @Override
+    public int countWithPrefix(String prefix) {
+        int[] position = walk(prefix);
+        return position == null ? 0 : wordsFrom.get(position[0]);
+    }
+
+    @Override
+    public String wordOf(int id) {
+        if (id < 0 || id >= size()) {
+            throw new IndexOutOfBoundsException("No word with id " + id);
+        }
+        StringBuilder word = new StringBuilder();
+        int state = root;
+        int remaining = id;
+        while (true) {
+            if (isFinal(state)) {
+                if (remaining == 0) {
+                    return word.toString();
+                }
+                remaining--;
+            }
+            for (int e = firstEdge(state); e < endEdge(state); e++) {
+                int count = wordsFrom.get(edgeTarget.get(e));
+                if (remaining < count) {
+                    word.append(edgeLabel.get(e));
+                    state = edgeTarget.get(e);
+                    break;
+                }
+                remaining -= count;
+            }
+        }
+    }
+
+    @Override
+    public int size() {
+        return wordsFrom.get(root);
+    }
+
+    @Override
+    public int nodeCount() {
+        return isFinal.capacity();
+    }
+}
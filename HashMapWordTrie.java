@@ -0,0 +1,175 @@
+import java.util.*;
+
+/**
+ * Reference WordTrie backend with the node layout the tasks started from:
+ * one object per node holding a HashMap of boxed characters to child nodes.
+ *
+ * Assignment 3
+ */
+public class HashMapWordTrie implements WordTrie {
+
+    private Node root;
+    private List<Node> wordNodes;
+    private int nodeCount;
+
+    class Node {
+        Map<Character, Node> children;
+        Node parent;
+        char label;
+        int wordId;
+        int wordCount;
+
+        Node(Node parent, char label) {
+            this.children = new HashMap<>();
+            this.parent = parent;
+            this.label = label;
+            this.wordId = -1;
+        }
+    }
+
+    public HashMapWordTrie() {
+        root = new Node(null, '\0');
+        wordNodes = new ArrayList<>();
+        nodeCount = 1;
+    }
+
+    @Override
+    public int insert(String word) {
+        Node current = root;
+        for (int i = 0; i < word.length(); i++) {
+            char ch = word.charAt(i);
+            Node child = current.children.get(ch);
+            if (child == null) {
+                child = new Node(current, ch);
+                current.children.put(ch, child);
+                nodeCount++;
+            }
+            current = child;
+        }
+        if (current.wordId < 0) {
+            current.wordId = wordNodes.size();
+            wordNodes.add(current);
+            for (Node node = current; node != null; node = node.parent) {
+                node.wordCount++;
+            }
+        }
+        return current.wordId;
+    }
+
+    @Override
+    public int find(String word) {
+        Node node = findNode(word);
+        return node == null ? -1 : node.wordId;
+    }
+
+    private Node findNode(String prefix) {
+        Node current = root;
+        for (int i = 0; i < prefix.length() && current != null; i++) {
+            current = current.children.get(prefix.charAt(i));
+        }
+        return current;
+    }
+
+    @Override
+    public PrimitiveIterator.OfInt wordsWithPrefix(String prefix, int afterId) {
+        Node start = findNode(prefix);
+        Deque<Node> stack = new ArrayDeque<>();
+        if (afterId >= 0) {
+            Node resume = wordNodes.get(afterId);
+            // Everything after the resume node in pre-order: its own children, then the later
+            // siblings of each node on the way back up to start (deepest level on top)
+            List<List<Node>> levels = new ArrayList<>();
+            levels.add(sortedChildren(resume, '\0', true));
+            Node node = resume;
+            while (node != start) {
+                if (node == root) {
+                    throw new IllegalArgumentException("Word " + afterId + " does not start with \"" + prefix + "\"");
+                }
+                levels.add(sortedChildren(node.parent, node.label, false));
+                node = node.parent;
+            }
+            for (int i = levels.size() - 1; i >= 0; i--) {
+                pushReversed(stack, levels.get(i));
+            }
+        } else if (start != null) {
+            stack.push(start);
+        }
+
+        return new PrimitiveIterator.OfInt() {
+            private int next = advance();
+
+            private int advance() {
+                while (!stack.isEmpty()) {
+                    Node node = stack.pop();
+                    pushReversed(stack, sortedChildren(node, '\0', true));
+                    if (node.wordId >= 0) {
+                        return node.wordId;
+                    }
+                }
+                return -1;
+            }
+
+            @Override
+            public boolean hasNext() {
+                return next >= 0;
+            }
+
+            @Override
+            public int nextInt() {
+                if (next < 0) {
+                    throw new NoSuchElementException();
+                }
+                int id = next;
+                next = advance();
+                return id;
+            }
+        };
+    }
+
+    /**
+     * Children of a node in label order, optionally only those labelled after the given label.
+     */
+    private List<Node> sortedChildren(Node node, char after, boolean all) {
+        List<Character> labels = new ArrayList<>(node.children.keySet());
+        Collections.sort(labels);
+        List<Node> children = new ArrayList<>();
+        for (char label : labels) {
+            if (all || label > after) {
+                children.add(node.children.get(label));
+            }
+        }
+        return children;
+    }
+
+    // Smallest label ends up on top so it comes off the stack first
+    private static void pushReversed(Deque<Node> stack, List<Node> nodes) {
+        for (int i = nodes.size() - 1; i >= 0; i--) {
+            stack.push(nodes.get(i));
+        }
+    }
+
+    @Override
+    public int countWithPrefix(String prefix) {
+        Node node = findNode(prefix);
+        return node == null ? 0 : node.wordCount;
+    }
+
+    @Override
+    public String wordOf(int id) {
+        StringBuilder word = new StringBuilder();
+        for (Node node = wordNodes.get(id); node != root; node = node.parent) {
+            word.append(node.label);
+        }
+        return word.reverse().toString();
+    }
+
+    @Override
+    public int size() {
+        return wordNodes.size();
+    }
+
+    @Override
+    public int nodeCount() {
+        return nodeCount;
+    }
+}
@@ -0,0 +1,83 @@
+import java.util.concurrent.*;
+
+/**
+ * Splits a pattern count over a long text into chunks counted on a ForkJoinPool.
+ *
+ * Every chunk owns the match start positions [from, to) and its counter may read up to
+ * to + m - 1, i.e. neighbouring chunks overlap by m - 1 characters. A match straddling a chunk
+ * boundary is therefore seen completely by the chunk it starts in and by no other, so the chunk
+ * counts add up to exactly the serial count - overlapping matches included.
+ *
+ * Assignment 3
+ */
+public class ParallelMatchCounter {
+
+    // Below this a chunk isn't worth a task of its own
+    public static final int MIN_CHUNK = 64 * 1024;
+
+    /**
+     * Counts the matches that start in [from, to), reading at most up to to + m - 1.
+     */
+    public interface RangeCounter {
+        long count(int from, int to);
+    }
+
+    private ParallelMatchCounter() {
+    }
+
+    /**
+     * Chunk length for a text: about four chunks per worker so uneven chunks still balance,
+     * never smaller than MIN_CHUNK.
+     */
+    public static int chunkSize(long length, int parallelism) {
+        long chunk = (length + 4L * parallelism - 1) / (4L * parallelism);
+        return (int) Math.min(Integer.MAX_VALUE, Math.max(MIN_CHUNK, chunk));
+    }
+
+    /**
+     * Counts over positions [0, length) with chunks sized for the pool.
+     */
+    public static long count(ForkJoinPool pool, int length, RangeCounter counter) {
+        return count(pool, length, chunkSize(length, pool.getParallelism()), counter);
+    }
+
+    public static long count(ForkJoinPool pool, int length, int chunkSize, RangeCounter counter) {
+        if (length <= chunkSize) {
+            return counter.count(0, length);  // one chunk - no need to involve the pool
+        }
+        return pool.invoke(new ChunkTask(counter, 0, length, Math.max(1, chunkSize)));
+    }
+
+    /**
+     * Halves its range until it is at most one chunk long, then counts it.
+     */
+    private static class ChunkTask extends RecursiveTask<Long> {
+        private static final long serialVersionUID = 1L;
+
+        private final RangeCounter counter;
+        private final int from;
+        private final int to;
+        private final int chunkSize;
+
+        ChunkTask(RangeCounter counter, int from, int to, int chunkSize) {
+            this.counter = counter;
+            this.from = from;
+            this.to = to;
+            this.chunkSize = chunkSize;
+        }
+
+        @Override
+        protected Long compute() {
+            if (to - from <= chunkSize) {
+                return counter.count(from, to);
+            }
+            // Split on a chunk boundary so the chunks come out the same however the range is halved
+            int chunks = (int) ((to - from + (long) chunkSize - 1) / chunkSize);
+            int middle = from + (chunks / 2) * chunkSize;
+            ChunkTask left = new ChunkTask(counter, from, middle, chunkSize);
+            left.fork();
+            long right = new ChunkTask(counter, middle, to, chunkSize).compute();
+            return left.join() + right;
+        }
+    }
+}
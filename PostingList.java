@@ -0,0 +1,280 @@
+import java.util.*;
+
+/**
+ * Compressed postings of one word: document ids (ascending) with the word's frequency and, for
+ * positional lists, its token positions in each document. Everything is stored as varints: per
+ * posting the gap to the previous document id and the frequency (plus, for positional lists, the
+ * byte length of its positions), and in a second byte array the gaps between positions. Small
+ * gaps - frequent words, nearby positions - take a single byte. Keeping positions apart means
+ * intersections and frequency lookups step over a posting's positions without reading them.
+ *
+ * Every BLOCK postings a skip entry remembers the block's first document and byte offsets, so a
+ * cursor can jump over whole blocks when advancing to a document. Intersections run on cursors
+ * over the compressed bytes and never build a set of the inputs.
+ *
+ * Postings must be added in increasing document order.
+ *
+ * Assignment 3
+ */
+public class PostingList {
+
+    static final int BLOCK = 128;
+
+    private final boolean positional;
+    private byte[] data = new byte[16];
+    private int length;
+    private byte[] positionData = new byte[0];
+    private int positionLength;
+    private int count;
+    private int lastDocument = -1;
+    private long positionCount;
+    private int[] blockFirstDocument = new int[1];
+    private int[] blockOffset = new int[1];
+    private int[] blockPositionOffset = new int[1];
+    private int[] blockBase = new int[1];  // document id before the block, the base of its first gap
+
+    public PostingList(boolean positional) {
+        this.positional = positional;
+    }
+
+    /**
+     * Adds a document with its positions (ascending), or with only a frequency for non-positional lists.
+     *
+     * @throws IllegalArgumentException if document is not larger than the last one added
+     */
+    public void add(int document, int frequency, int[] positions) {
+        if (document <= lastDocument) {
+            throw new IllegalArgumentException("Documents must be added in increasing order: " + document + " after " + lastDocument);
+        }
+        if (count % BLOCK == 0) {
+            int block = count / BLOCK;
+            if (block == blockOffset.length) {
+                blockFirstDocument = Arrays.copyOf(blockFirstDocument, block * 2);
+                blockOffset = Arrays.copyOf(blockOffset, block * 2);
+                blockPositionOffset = Arrays.copyOf(blockPositionOffset, block * 2);
+                blockBase = Arrays.copyOf(blockBase, block * 2);
+            }
+            blockFirstDocument[block] = document;
+            blockOffset[block] = length;
+            blockPositionOffset[block] = positionLength;
+            blockBase[block] = lastDocument;
+        }
+        writeVarint(document - lastDocument);
+        writeVarint(frequency);
+        if (positional) {
+            int start = positionLength;
+            int previous = -1;
+            for (int i = 0; i < frequency; i++) {
+                if (positionLength + 5 > positionData.length) {
+                    positionData = Arrays.copyOf(positionData, Math.max(positionData.length * 2, 16));
+                }
+                positionLength = writeVarint(positionData, positionLength, positions[i] - previous);
+                previous = positions[i];
+            }
+            writeVarint(positionLength - start);
+            positionCount += frequency;
+        }
+        lastDocument = document;
+        count++;
+    }
+
+    private void writeVarint(int value) {
+        if (length + 5 > data.length) {
+            data = Arrays.copyOf(data, Math.max(data.length * 2, length + 5));
+        }
+        length = writeVarint(data, length, value);
+    }
+
+    // Writes value at offset (the array has room for 5 bytes) and returns the offset after it
+    private static int writeVarint(byte[] bytes, int offset, int value) {
+        while ((value & ~0x7F) != 0) {
+            bytes[offset++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        bytes[offset++] = (byte) value;
+        return offset;
+    }
+
+    /**
+     * Number of documents in the list.
+     */
+    public int size() {
+        return count;
+    }
+
+    public boolean isPositional() {
+        return positional;
+    }
+
+    public long positionCount() {
+        return positionCount;
+    }
+
+    /**
+     * Bytes used by the compressed postings and the skip entries.
+     */
+    public long sizeInBytes() {
+        return length + positionLength + 16L * ((count + BLOCK - 1) / BLOCK);
+    }
+
+    public Cursor cursor() {
+        return new Cursor();
+    }
+
+    /**
+     * Frequency of the word in a document, 0 if the document is not in the list.
+     */
+    public int frequency(int document) {
+        Cursor cursor = cursor();
+        return cursor.advanceTo(document) && cursor.document() == document ? cursor.frequency() : 0;
+    }
+
+    /**
+     * Reads the postings in document order, decoding them as it goes.
+     */
+    public class Cursor {
+        private int index = -1;
+        private int offset;
+        private int document = -1;
+        private int frequency;
+        private int positionOffset;  // start of the current posting's positions in positionData
+        private int positionBytes;
+
+        /**
+         * Moves to the next posting; false at the end of the list.
+         */
+        public boolean next() {
+            if (index + 1 >= count) {
+                index = count;
+                return false;
+            }
+            index++;
+            document += readVarint();
+            frequency = readVarint();
+            if (positional) {
+                positionOffset += positionBytes;
+                positionBytes = readVarint();
+            }
+            return true;
+        }
+
+        /**
+         * Moves to the first posting with document >= target (not backwards), skipping whole blocks
+         * where possible; false if there is none.
+         */
+        public boolean advanceTo(int target) {
+            if (index >= 0 && index < count && document >= target) {
+                return true;
+            }
+            int block = index < 0 ? 0 : index / BLOCK;
+            int blocks = (count + BLOCK - 1) / BLOCK;
+            int skipTo = -1;
+            while (block + 1 < blocks && blockFirstDocument[block + 1] <= target) {
+                block++;
+                skipTo = block;
+            }
+            if (skipTo >= 0 && skipTo * BLOCK > index) {
+                // Position the cursor just before the block's first posting
+                index = skipTo * BLOCK - 1;
+                offset = blockOffset[skipTo];
+                document = blockBase[skipTo];
+                positionOffset = blockPositionOffset[skipTo];
+                positionBytes = 0;
+            }
+            while (next()) {
+                if (document >= target) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        public int document() {
+            return document;
+        }
+
+        public int frequency() {
+            return frequency;
+        }
+
+        /**
+         * Positions of the word in the current document (positional lists only).
+         */
+        public int[] positions() {
+            if (!positional) {
+                throw new IllegalStateException("Posting list has no positions");
+            }
+            int[] positions = new int[frequency];
+            int at = positionOffset;
+            int previous = -1;
+            for (int i = 0; i < frequency; i++) {
+                int value = 0;
+                int shift = 0;
+                byte b;
+                do {
+                    b = positionData[at++];
+                    value |= (b & 0x7F) << shift;
+                    shift += 7;
+                } while ((b & 0x80) != 0);
+                previous += value;
+                positions[i] = previous;
+            }
+            return positions;
+        }
+
+        private int readVarint() {
+            byte first = data[offset];
+            if (first >= 0) {
+                offset++;
+                return first;  // gaps and frequencies below 128: the common case
+            }
+            int value = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = data[offset++];
+                value |= (b & 0x7F) << shift;
+                shift += 7;
+            } while ((b & 0x80) != 0);
+            return value;
+        }
+    }
+
+    /**
+     * Documents in every list, ascending. Cursors take turns advancing to the largest current
+     * document (rarest list first), so long lists are mostly skipped block by block.
+     */
+    public static int[] intersect(List<PostingList> lists) {
+        if (lists.isEmpty()) {
+            return new int[0];
+        }
+        List<PostingList> ordered = new ArrayList<>(lists);
+        ordered.sort((a, b) -> Integer.compare(a.size(), b.size()));
+        Cursor[] cursors = new Cursor[ordered.size()];
+        for (int i = 0; i < cursors.length; i++) {
+            cursors[i] = ordered.get(i).cursor();
+        }
+
+        int[] result = new int[ordered.get(0).size()];
+        int found = 0;
+        int candidate = -1;
+        search:
+        while (cursors[0].advanceTo(candidate + 1)) {
+            candidate = cursors[0].document();
+            int agreeing = 1;
+            for (int i = 1 % cursors.length; agreeing < cursors.length; i = (i + 1) % cursors.length) {
+                if (!cursors[i].advanceTo(candidate)) {
+                    break search;
+                }
+                if (cursors[i].document() == candidate) {
+                    agreeing++;
+                } else {
+                    candidate = cursors[i].document();
+                    agreeing = 1;
+                }
+            }
+            result[found++] = candidate;
+        }
+        return Arrays.copyOf(result, found);
+    }
+}
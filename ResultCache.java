@@ -0,0 +1,196 @@
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded query result cache with sampled segmented-LRU eviction, keyed by (corpus version, query key).
+ *
+ * Entries live in a ConcurrentHashMap, so a hit is a plain lookup that only marks the entry as used:
+ * it never takes a lock, and threads hitting the cache don't wait on each other. New entries start
+ * in probation; a hit promotes the entry to the protected segment. When a put overflows the
+ * capacity, the evicting thread samples SAMPLE entries (a hand that sweeps the map, like a clock)
+ * and removes the least recently used probation entry among them. If more than 80% of the sample
+ * is protected, the least recently used protected one is demoted first, so a burst of one-off
+ * queries can't push out the popular ones. Only evictions are serialized.
+ *
+ * Callers pass the version of the data the result was computed from. Reloading the data bumps the
+ * version, after which older entries are never hit again and are the first to be evicted.
+ *
+ * Assignment 3
+ */
+public class ResultCache<K, V> {
+
+    static final int SAMPLE = 8;
+
+    private static final class Key<K> {
+        final long version;
+        final K key;
+
+        Key(long version, K key) {
+            this.version = version;
+            this.key = key;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof Key)) {
+                return false;
+            }
+            Key<?> that = (Key<?>) other;
+            return version == that.version && key.equals(that.key);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * Long.hashCode(version) + key.hashCode();
+        }
+    }
+
+    private static final class Entry<V> {
+        final V value;
+        volatile boolean promoted;
+        volatile long lastAccess = System.nanoTime();
+
+        Entry(V value) {
+            this.value = value;
+        }
+    }
+
+    private final int capacity;
+    private final ConcurrentHashMap<Key<K>, Entry<V>> entries = new ConcurrentHashMap<>();
+    private final LongAccumulator newestVersion = new LongAccumulator(Long::max, Long.MIN_VALUE);
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final Object evictionLock = new Object();
+    private Iterator<Map.Entry<Key<K>, Entry<V>>> hand;  // guarded by evictionLock
+
+    public ResultCache(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be at least 1: " + capacity);
+        }
+        this.capacity = capacity;
+    }
+
+    /**
+     * The cached result, or null (counted as a miss).
+     */
+    public V get(long version, K key) {
+        Entry<V> entry = entries.get(new Key<>(version, key));
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+        if (!entry.promoted) {
+            entry.promoted = true;  // written once, so hot entries aren't rewritten on every hit
+        }
+        entry.lastAccess = System.nanoTime();
+        hits.increment();
+        return entry.value;
+    }
+
+    public void put(long version, K key, V value) {
+        newestVersion.accumulate(version);
+        Entry<V> entry = new Entry<>(value);
+        Entry<V> previous = entries.put(new Key<>(version, key), entry);
+        if (previous != null) {
+            entry.promoted = previous.promoted;
+        } else if (entries.size() > capacity) {
+            evict();
+        }
+    }
+
+    private void evict() {
+        synchronized (evictionLock) {
+            while (entries.size() > capacity) {
+                List<Map.Entry<Key<K>, Entry<V>>> sample = sample();
+                if (sample.isEmpty()) {
+                    return;
+                }
+                Map.Entry<Key<K>, Entry<V>> victim = chooseVictim(sample);
+                if (entries.remove(victim.getKey(), victim.getValue())) {
+                    evictions.increment();
+                }
+            }
+        }
+    }
+
+    // The next SAMPLE entries under the hand, wrapping around the map at most once
+    private List<Map.Entry<Key<K>, Entry<V>>> sample() {
+        int wanted = Math.min(SAMPLE, entries.size());
+        List<Map.Entry<Key<K>, Entry<V>>> sample = new ArrayList<>(wanted);
+        boolean wrapped = false;
+        while (sample.size() < wanted) {
+            if (hand == null || !hand.hasNext()) {
+                if (wrapped) {
+                    break;
+                }
+                hand = entries.entrySet().iterator();
+                wrapped = true;
+                continue;
+            }
+            sample.add(hand.next());
+        }
+        return sample;
+    }
+
+    private Map.Entry<Key<K>, Entry<V>> chooseVictim(List<Map.Entry<Key<K>, Entry<V>>> sample) {
+        long newest = newestVersion.get();
+        Map.Entry<Key<K>, Entry<V>> oldestProbation = null;
+        Map.Entry<Key<K>, Entry<V>> oldestProtected = null;
+        int protectedCount = 0;
+        for (Map.Entry<Key<K>, Entry<V>> candidate : sample) {
+            if (candidate.getKey().version < newest) {
+                return candidate;  // computed from data that has since been reloaded
+            }
+            Entry<V> entry = candidate.getValue();
+            if (entry.promoted) {
+                protectedCount++;
+                if (oldestProtected == null || entry.lastAccess < oldestProtected.getValue().lastAccess) {
+                    oldestProtected = candidate;
+                }
+            } else if (oldestProbation == null || entry.lastAccess < oldestProbation.getValue().lastAccess) {
+                oldestProbation = candidate;
+            }
+        }
+        if (protectedCount > sample.size() * 4 / 5) {
+            // Protected holds more than its 80% share: its least recently used entry goes back to probation
+            oldestProtected.getValue().promoted = false;
+        }
+        return oldestProbation != null ? oldestProbation : oldestProtected;
+    }
+
+    public void clear() {
+        entries.clear();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    public long hits() {
+        return hits.sum();
+    }
+
+    public long misses() {
+        return misses.sum();
+    }
+
+    public long evictions() {
+        return evictions.sum();
+    }
+
+    @Override
+    public String toString() {
+        long hitCount = hits.sum();
+        long missCount = misses.sum();
+        long lookups = hitCount + missCount;
+        return "hits=" + hitCount + ", misses=" + missCount + ", evictions=" + evictions.sum() + ", size=" + size() + "/" + capacity +
+               ", hit rate=" + (lookups == 0 ? 0 : hitCount * 100 / lookups) + "%";
+    }
+}
@@ -0,0 +1,581 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.zip.CRC32;
+
+/**
+ * Durable, append-only log of searches (word + time) with periodic snapshots of the word counts.
+ *
+ * append() only puts the search on a lock-free queue; one writer thread drains whatever has queued up
+ * into a single frame, writes it with one FileChannel write and makes it durable with one force() -
+ * group commit, so a burst of searches costs one fsync and callers never wait on the disk. The queue
+ * holds at most about QUEUE_CAPACITY searches: when the disk can't keep up (a stalled force() or a
+ * large snapshot), append() drops the search instead of blocking the caller, and counts it. The
+ * count is kept in the snapshot, so recovery reports it and marks the recovered state as lossy.
+ *
+ * One SearchLog at a time may use a directory: recover() takes an exclusive lock on search.lock
+ * and fails if another instance (in this or another process) holds it. The lock is released when
+ * the writer stops.
+ *
+ * Files in the directory:
+ *   search-<generation>.log - frames: int payload length, int CRC32, payload
+ *                             (long base time, varint record count, then per record:
+ *                              varint UTF-8 length, word bytes, zigzag varint time - base time)
+ *   search.snapshot         - magic, version, first generation not included, total searches, dropped
+ *                             searches (version 2 on), word count, then varint length + word bytes +
+ *                             varint count per word, CRC32 at the end
+ * After every snapshotInterval logged searches (and on close) the writer starts a new log generation,
+ * writes a snapshot of everything before it (temporary file + move) and deletes the older logs.
+ * Recovery therefore reads the snapshot and replays only the logs written after it. A frame that
+ * is cut off or fails its checksum (a crash mid-write) ends its log, which is truncated there.
+ *
+ * Assignment 3
+ */
+public class SearchLog implements Closeable {
+
+    public static final int VERSION = 2;
+
+    private static final int SNAPSHOT_MAGIC = 0x41335353;  // "A3SS"
+    private static final String SNAPSHOT_FILE = "search.snapshot";
+    private static final String LOCK_FILE = "search.lock";
+    static final int QUEUE_CAPACITY = 1 << 17;
+    private static final int MAX_BATCH = 8192;
+    private static final long IDLE_PARK_NANOS = 10_000_000L;
+
+    /**
+     * Receives the recovered state: counts from the snapshot, then the searches logged after it.
+     */
+    public interface RecoveryListener {
+        void restoreCount(String word, long count);
+
+        void replay(String word, long timeMillis);
+    }
+
+    /**
+     * What recovery found and how long it took.
+     */
+    public static class Recovery {
+        public int snapshotWords;
+        public long snapshotSearches;
+        public long replayedSearches;
+        public long droppedSearches;
+        public int truncatedLogs;
+        public long nanos;
+
+        public long totalSearches() {
+            return snapshotSearches + replayedSearches;
+        }
+
+        /**
+         * True if searches were dropped by a full queue, so the recovered counts are too low.
+         */
+        public boolean isLossy() {
+            return droppedSearches > 0;
+        }
+
+        @Override
+        public String toString() {
+            return totalSearches() + " search(es) recovered (snapshot: " + snapshotWords + " words / " + snapshotSearches +
+                   " searches, log replay: " + replayedSearches + " searches" +
+                   (truncatedLogs > 0 ? ", " + truncatedLogs + " torn log(s) truncated" : "") + ") in " + nanos / 1_000_000 + " ms" +
+                   (isLossy() ? " - LOSSY: " + droppedSearches + " search(es) were dropped by a full queue" : "");
+        }
+    }
+
+    private static class Entry {
+        final String word;
+        final long timeMillis;
+
+        Entry(String word, long timeMillis) {
+            this.word = word;
+            this.timeMillis = timeMillis;
+        }
+    }
+
+    private final File directory;
+    private final int snapshotInterval;
+    private final Queue<Entry> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicLong appended = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private volatile long taken;  // searches the writer has taken off the queue
+    private final Object durableLock = new Object();
+
+    // Owned by the writer thread once recover() has started it
+    private final Map<String, long[]> counts = new HashMap<>();
+    private long totalSearches;
+    private long sinceSnapshot;
+    private long snapshotDropped;  // dropped count in the last snapshot written or read
+    private long generation;
+    private FileChannel log;
+    private FileChannel lockChannel;
+    private FileLock directoryLock;
+
+    private Thread writer;
+    private volatile boolean idle;
+    private volatile boolean closing;
+    private volatile boolean abandoned;
+    private volatile IOException failure;
+    private long durable;  // guarded by durableLock
+
+    public SearchLog(File directory, int snapshotInterval) {
+        this.directory = directory;
+        this.snapshotInterval = Math.max(1, snapshotInterval);
+    }
+
+    /**
+     * Locks the directory, loads the snapshot, replays the newer logs into the listener and starts
+     * the writer. Must be called once, before any append.
+     *
+     * @throws IOException if the directory can't be used, is locked by another SearchLog or the
+     *                     snapshot is damaged
+     */
+    public Recovery recover(RecoveryListener listener) throws IOException {
+        long startTime = System.nanoTime();
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Cannot create search log directory: " + directory);
+        }
+        lockDirectory();
+        try {
+            Recovery recovery = replayAll(listener);
+            recovery.nanos = System.nanoTime() - startTime;
+            writer = new Thread(this::writeLoop, "search-log-writer");
+            writer.setDaemon(true);
+            writer.start();
+            return recovery;
+        } catch (IOException | RuntimeException e) {
+            if (log != null) {
+                log.close();
+            }
+            unlockDirectory();
+            throw e;
+        }
+    }
+
+    private void lockDirectory() throws IOException {
+        lockChannel = FileChannel.open(new File(directory, LOCK_FILE).toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        try {
+            directoryLock = lockChannel.tryLock();
+        } catch (OverlappingFileLockException e) {
+            directoryLock = null;  // held by another SearchLog in this JVM
+        }
+        if (directoryLock == null) {
+            lockChannel.close();
+            lockChannel = null;
+            throw new IOException("Search log directory is in use by another SearchLog: " + directory);
+        }
+    }
+
+    private void unlockDirectory() throws IOException {
+        if (lockChannel != null) {
+            lockChannel.close();  // releases directoryLock
+            lockChannel = null;
+            directoryLock = null;
+        }
+    }
+
+    private Recovery replayAll(RecoveryListener listener) throws IOException {
+        Recovery recovery = new Recovery();
+        long firstGeneration = readSnapshot(listener, recovery);
+        totalSearches = recovery.snapshotSearches;
+        dropped.set(recovery.droppedSearches);
+        snapshotDropped = recovery.droppedSearches;
+
+        TreeMap<Long, File> logs = new TreeMap<>();
+        File[] files = directory.listFiles();
+        for (File file : files == null ? new File[0] : files) {
+            String name = file.getName();
+            if (name.startsWith("search-") && name.endsWith(".log")) {
+                try {
+                    logs.put(Long.parseLong(name.substring(7, name.length() - 4)), file);
+                } catch (NumberFormatException e) {
+                    // not one of ours
+                }
+            }
+        }
+        generation = firstGeneration;
+        for (Map.Entry<Long, File> entry : logs.entrySet()) {
+            if (entry.getKey() < firstGeneration) {
+                Files.deleteIfExists(entry.getValue().toPath());  // already in the snapshot
+            } else {
+                replayLog(entry.getValue(), listener, recovery);
+                generation = entry.getKey();
+            }
+        }
+        totalSearches += recovery.replayedSearches;
+        sinceSnapshot = recovery.replayedSearches;
+
+        log = FileChannel.open(logFile(generation).toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        log.position(log.size());
+        return recovery;
+    }
+
+    /**
+     * Queues a search for the log. Never blocks and never touches the disk: if QUEUE_CAPACITY
+     * searches are already waiting for the writer, the search is dropped and counted instead.
+     */
+    public void append(String word, long timeMillis) {
+        if (closing || failure != null) {
+            return;
+        }
+        if (appended.get() - taken >= QUEUE_CAPACITY) {
+            dropped.incrementAndGet();
+            return;
+        }
+        queue.add(new Entry(word, timeMillis));
+        appended.incrementAndGet();
+        if (idle) {
+            LockSupport.unpark(writer);
+        }
+    }
+
+    /**
+     * Searches dropped because the queue was full, including those recorded in the recovered snapshot.
+     */
+    public long droppedSearches() {
+        return dropped.get();
+    }
+
+    /**
+     * Waits until every search appended before this call is on disk.
+     */
+    public void flush() throws IOException {
+        long target = appended.get();
+        LockSupport.unpark(writer);
+        synchronized (durableLock) {
+            while (durable < target && failure == null && writer.isAlive()) {
+                try {
+                    durableLock.wait(10);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while flushing the search log");
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Writes what is still queued, takes a final snapshot and stops the writer.
+     */
+    @Override
+    public void close() throws IOException {
+        if (writer == null || closing) {
+            return;
+        }
+        closing = true;
+        LockSupport.unpark(writer);
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Stops the writer the way a crash would: searches still queued are dropped and no final
+     * snapshot is taken, so the next recover() replays the log. Releases the directory lock.
+     */
+    public void abandon() {
+        if (writer == null || closing) {
+            return;
+        }
+        abandoned = true;
+        closing = true;
+        LockSupport.unpark(writer);
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void writeLoop() {
+        Encoder frame = new Encoder();
+        try {
+            while (!abandoned) {
+                Entry first = queue.poll();
+                if (first == null) {
+                    if (closing) {
+                        break;
+                    }
+                    idle = true;
+                    if (queue.isEmpty() && !closing) {
+                        LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+                    }
+                    idle = false;
+                    continue;
+                }
+
+                // Everything queued so far goes into one frame: one write, one fsync
+                List<Entry> batch = new ArrayList<>();
+                batch.add(first);
+                for (Entry entry; batch.size() < MAX_BATCH && (entry = queue.poll()) != null; ) {
+                    batch.add(entry);
+                }
+                taken += batch.size();  // only this thread writes it
+                writeFrame(frame, batch);
+                log.force(false);
+
+                for (Entry entry : batch) {
+                    counts.computeIfAbsent(entry.word, word -> new long[1])[0]++;
+                }
+                totalSearches += batch.size();
+                sinceSnapshot += batch.size();
+                if (sinceSnapshot >= snapshotInterval) {
+                    snapshot();
+                }
+                // Reported after a due snapshot, so flush() also returns with the files settled
+                synchronized (durableLock) {
+                    durable += batch.size();
+                    durableLock.notifyAll();
+                }
+            }
+            if ((sinceSnapshot > 0 || dropped.get() != snapshotDropped) && !abandoned) {
+                snapshot();
+            }
+        } catch (IOException e) {
+            failure = e;
+            System.err.println("Error writing search log: " + e.getMessage());
+        } finally {
+            try {
+                log.close();
+                unlockDirectory();
+            } catch (IOException e) {
+                System.err.println("Error closing search log: " + e.getMessage());
+            }
+            synchronized (durableLock) {
+                durableLock.notifyAll();
+            }
+        }
+    }
+
+    private void writeFrame(Encoder frame, List<Entry> batch) throws IOException {
+        long baseTime = batch.get(0).timeMillis;
+        frame.reset();
+        frame.writeLong(baseTime);
+        frame.writeVarLong(batch.size());
+        for (Entry entry : batch) {
+            byte[] word = entry.word.getBytes(StandardCharsets.UTF_8);
+            frame.writeVarLong(word.length);
+            frame.write(word);
+            long delta = entry.timeMillis - baseTime;
+            frame.writeVarLong((delta << 1) ^ (delta >> 63));
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(frame.bytes, 0, frame.length);
+        ByteBuffer buffer = ByteBuffer.allocate(8 + frame.length);
+        buffer.putInt(frame.length).putInt((int) crc.getValue()).put(frame.bytes, 0, frame.length);
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            log.write(buffer);
+        }
+    }
+
+    /**
+     * Rolls over to a new log generation, snapshots everything before it and drops the old logs.
+     */
+    private void snapshot() throws IOException {
+        log.close();
+        long previous = generation;
+        generation++;
+        log = FileChannel.open(logFile(generation).toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+
+        Encoder body = new Encoder();
+        body.writeInt(SNAPSHOT_MAGIC);
+        body.writeInt(VERSION);
+        body.writeLong(generation);
+        body.writeLong(totalSearches);
+        long droppedSoFar = dropped.get();
+        body.writeLong(droppedSoFar);
+        body.writeInt(counts.size());
+        for (Map.Entry<String, long[]> entry : counts.entrySet()) {
+            byte[] word = entry.getKey().getBytes(StandardCharsets.UTF_8);
+            body.writeVarLong(word.length);
+            body.write(word);
+            body.writeVarLong(entry.getValue()[0]);
+        }
+        CRC32 crc = new CRC32();
+        crc.update(body.bytes, 0, body.length);
+        body.writeLong(crc.getValue());
+
+        Path target = new File(directory, SNAPSHOT_FILE).toPath();
+        Path temporary = target.resolveSibling(SNAPSHOT_FILE + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.wrap(body.bytes, 0, body.length);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        }
+        Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        for (long old = previous; old >= 0 && logFile(old).exists(); old--) {
+            Files.delete(logFile(old).toPath());
+        }
+        sinceSnapshot = 0;
+        snapshotDropped = droppedSoFar;
+    }
+
+    /**
+     * Returns the first log generation that is not in the snapshot (0 without a snapshot).
+     */
+    private long readSnapshot(RecoveryListener listener, Recovery recovery) throws IOException {
+        File file = new File(directory, SNAPSHOT_FILE);
+        if (!file.exists()) {
+            return 0;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file.toPath()));
+        if (buffer.remaining() < 4 + 4 + 8 + 8 + 4 + 8 || buffer.getInt(0) != SNAPSHOT_MAGIC) {
+            throw new IOException("Not a search log snapshot: " + file);
+        }
+        int version = buffer.getInt(4);
+        if (version != 1 && version != VERSION) {
+            throw new IOException("Search log snapshot version " + version + ", expected 1 or " + VERSION);
+        }
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), 0, buffer.limit() - 8);
+        if (crc.getValue() != buffer.getLong(buffer.limit() - 8)) {
+            throw new IOException("Search log snapshot checksum mismatch: " + file);
+        }
+
+        buffer.position(8);
+        long firstGeneration = buffer.getLong();
+        recovery.snapshotSearches = buffer.getLong();
+        recovery.droppedSearches = version >= 2 ? buffer.getLong() : 0;
+        int words = buffer.getInt();
+        for (int i = 0; i < words; i++) {
+            byte[] word = new byte[(int) readVarLong(buffer)];
+            buffer.get(word);
+            long count = readVarLong(buffer);
+            String key = new String(word, StandardCharsets.UTF_8);
+            counts.put(key, new long[] {count});
+            listener.restoreCount(key, count);
+        }
+        recovery.snapshotWords = words;
+        return firstGeneration;
+    }
+
+    private void replayLog(File file, RecoveryListener listener, Recovery recovery) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long size = channel.size();
+            long position = 0;
+            ByteBuffer header = ByteBuffer.allocate(8);
+            while (position + 8 <= size) {
+                header.clear();
+                readFully(channel, header, position);
+                int length = header.getInt(0);
+                if (length < 9 || position + 8 + length > size) {
+                    break;
+                }
+                ByteBuffer payload = ByteBuffer.allocate(length);
+                readFully(channel, payload, position + 8);
+                CRC32 crc = new CRC32();
+                crc.update(payload.array());
+                if ((int) crc.getValue() != header.getInt(4)) {
+                    break;
+                }
+
+                payload.flip();
+                long baseTime = payload.getLong();
+                long records = readVarLong(payload);
+                for (long r = 0; r < records; r++) {
+                    byte[] word = new byte[(int) readVarLong(payload)];
+                    payload.get(word);
+                    long zigzag = readVarLong(payload);
+                    String key = new String(word, StandardCharsets.UTF_8);
+                    counts.computeIfAbsent(key, k -> new long[1])[0]++;
+                    listener.replay(key, baseTime + ((zigzag >>> 1) ^ -(zigzag & 1)));
+                }
+                recovery.replayedSearches += records;
+                position += 8 + length;
+            }
+            if (position < size) {
+                channel.truncate(position);  // torn or damaged tail from a crash
+                recovery.truncatedLogs++;
+            }
+        }
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException();
+            }
+        }
+    }
+
+    private static long readVarLong(ByteBuffer buffer) {
+        long value = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = buffer.get();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+    }
+
+    private File logFile(long logGeneration) {
+        return new File(directory, "search-" + logGeneration + ".log");
+    }
+
+    /**
+     * Growable byte array with the few big-endian and varint writes the formats need.
+     */
+    private static class Encoder {
+        byte[] bytes = new byte[4096];
+        int length;
+
+        void reset() {
+            length = 0;
+        }
+
+        private void ensure(int extra) {
+            if (length + extra > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, length + extra));
+            }
+        }
+
+        void write(byte[] data) {
+            ensure(data.length);
+            System.arraycopy(data, 0, bytes, length, data.length);
+            length += data.length;
+        }
+
+        void writeInt(int value) {
+            ensure(4);
+            for (int shift = 24; shift >= 0; shift -= 8) {
+                bytes[length++] = (byte) (value >>> shift);
+            }
+        }
+
+        void writeLong(long value) {
+            writeInt((int) (value >>> 32));
+            writeInt((int) value);
+        }
+
+        void writeVarLong(long value) {
+            ensure(10);
+            while ((value & ~0x7FL) != 0) {
+                bytes[length++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            bytes[length++] = (byte) value;
+        }
+    }
+}
@@ -0,0 +1,199 @@
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Sliding-window search counts over a fixed set of time buckets kept in rings:
+ * - LAST_MINUTE: 60 one-second buckets
+ * - LAST_HOUR:   60 one-minute buckets
+ * - LAST_DAY:    24 one-hour buckets
+ * Every search is added to the current bucket of each ring. A window covers the current bucket and
+ * the ones before it, so its start is accurate to one bucket (e.g. the last hour is the current
+ * minute plus the 59 before it).
+ *
+ * Nothing is stored per search, and each bucket is bounded: the first BUCKET_WORDS distinct words
+ * get exact counters, and words arriving after that share a Space-Saving summary of OVERFLOW_WORDS
+ * counters, whose counts are estimates (never below the true count). When the ring comes round to
+ * a slot again, a fresh bucket replaces the old one, so memory stays flat however many searches or
+ * distinct words arrive. Window queries merge buckets and never see single searches.
+ *
+ * Counters are LongAdders in a ConcurrentHashMap and buckets are swapped in by compare-and-set, so
+ * searches - even many for the same word - don't lock. Only words in the overflow summary do.
+ *
+ * Assignment 3
+ */
+public class SearchWindows {
+
+    public enum Window {
+        LAST_MINUTE(1000L, 60),
+        LAST_HOUR(60 * 1000L, 60),
+        LAST_DAY(60 * 60 * 1000L, 24);
+
+        final long bucketMillis;
+        final int buckets;
+
+        Window(long bucketMillis, int buckets) {
+            this.bucketMillis = bucketMillis;
+            this.buckets = buckets;
+        }
+    }
+
+    static final int BUCKET_WORDS = 256;
+    static final int OVERFLOW_WORDS = 64;
+
+    private final Ring[] rings;
+
+    public SearchWindows() {
+        Window[] windows = Window.values();
+        rings = new Ring[windows.length];
+        for (Window window : windows) {
+            rings[window.ordinal()] = new Ring(window);
+        }
+    }
+
+    /**
+     * Searches of one time bucket.
+     */
+    private static class Bucket {
+        final long number;
+        final LongAdder total = new LongAdder();
+        final ConcurrentHashMap<String, LongAdder> words = new ConcurrentHashMap<>();
+        volatile SpaceSaving overflow;
+
+        Bucket(long number) {
+            this.number = number;
+        }
+
+        void record(String word) {
+            total.increment();
+            LongAdder counter = words.get(word);
+            if (counter == null) {
+                if (words.size() >= BUCKET_WORDS) {
+                    overflow().offer(word);
+                    return;
+                }
+                counter = words.computeIfAbsent(word, key -> new LongAdder());
+            }
+            counter.increment();
+        }
+
+        private SpaceSaving overflow() {
+            SpaceSaving summary = overflow;
+            if (summary == null) {
+                synchronized (this) {
+                    summary = overflow;
+                    if (summary == null) {
+                        summary = new SpaceSaving(OVERFLOW_WORDS);
+                        overflow = summary;
+                    }
+                }
+            }
+            return summary;
+        }
+
+        void addTo(Map<String, Integer> wordCounts) {
+            for (Map.Entry<String, LongAdder> entry : words.entrySet()) {
+                wordCounts.merge(entry.getKey(), entry.getValue().intValue(), Integer::sum);
+            }
+            SpaceSaving summary = overflow;
+            if (summary != null) {
+                for (SpaceSaving.Estimate estimate : summary.top(OVERFLOW_WORDS)) {
+                    wordCounts.merge(estimate.item, (int) estimate.count, Integer::sum);
+                }
+            }
+        }
+    }
+
+    /**
+     * One ring of buckets; slot = bucket number % buckets.
+     */
+    private static class Ring {
+        final long bucketMillis;
+        final int buckets;
+        final AtomicReferenceArray<Bucket> slots;
+
+        Ring(Window window) {
+            bucketMillis = window.bucketMillis;
+            buckets = window.buckets;
+            slots = new AtomicReferenceArray<>(buckets);
+        }
+
+        void record(String word, long timeMillis) {
+            long number = timeMillis / bucketMillis;
+            int slot = (int) (number % buckets);
+            Bucket bucket = slots.get(slot);
+            while (bucket == null || bucket.number < number) {
+                // The slot still holds an older bucket (or none): replace it with an empty one
+                Bucket fresh = new Bucket(number);
+                if (slots.compareAndSet(slot, bucket, fresh)) {
+                    bucket = fresh;
+                } else {
+                    bucket = slots.get(slot);
+                }
+            }
+            if (bucket.number == number) {
+                bucket.record(word);
+            }
+            // else: a search stamped before the bucket the slot has moved on to
+        }
+
+        /**
+         * Adds up the buckets of the window ending in the bucket of nowMillis; wordCounts may be null.
+         */
+        long collect(long nowMillis, Map<String, Integer> wordCounts) {
+            long current = nowMillis / bucketMillis;
+            long sum = 0;
+            for (long number = Math.max(0, current - buckets + 1); number <= current; number++) {
+                Bucket bucket = slots.get((int) (number % buckets));
+                if (bucket == null || bucket.number != number) {
+                    continue;
+                }
+                sum += bucket.total.sum();
+                if (wordCounts != null) {
+                    bucket.addTo(wordCounts);
+                }
+            }
+            return sum;
+        }
+    }
+
+    /**
+     * Counts one search of a (normalized) word at the given time.
+     */
+    public void record(String word, long timeMillis) {
+        for (Ring ring : rings) {
+            ring.record(word, timeMillis);
+        }
+    }
+
+    /**
+     * Searches in the window that ends at nowMillis.
+     */
+    public long count(Window window, long nowMillis) {
+        return rings[window.ordinal()].collect(nowMillis, null);
+    }
+
+    /**
+     * The n most searched words in the window that ends at nowMillis, most searched first.
+     */
+    public List<Map.Entry<String, Integer>> top(Window window, int n, long nowMillis) {
+        Map<String, Integer> wordCounts = new HashMap<>();
+        rings[window.ordinal()].collect(nowMillis, wordCounts);
+
+        // Keep only the n largest in a min-heap instead of sorting every word of the window
+        PriorityQueue<Map.Entry<String, Integer>> heap = new PriorityQueue<>(Math.max(1, n),
+            (a, b) -> a.getValue().equals(b.getValue()) ? b.getKey().compareTo(a.getKey()) : a.getValue().compareTo(b.getValue()));
+        for (Map.Entry<String, Integer> entry : wordCounts.entrySet()) {
+            if (heap.size() < n) {
+                heap.add(entry);
+            } else if (n > 0 && heap.comparator().compare(entry, heap.peek()) > 0) {
+                heap.poll();
+                heap.add(entry);
+            }
+        }
+        List<Map.Entry<String, Integer>> top = new ArrayList<>(heap);
+        top.sort(Collections.reverseOrder(heap.comparator()));
+        return top;
+    }
+}
@@ -0,0 +1,218 @@
+import java.util.*;
+
+/**
+ * Space-Saving heavy-hitters summary: tracks at most `capacity` items however many distinct items
+ * arrive. When it is full, a new item takes over the counter with the smallest count c and starts
+ * at c + 1, remembering c as its possible overestimation (error).
+ *
+ * Guarantees for a stream of N items:
+ * - a tracked item's true count is in [count - error, count]
+ * - every error, and the count of any untracked item, is at most the minimum count <= N / capacity,
+ *   so every item occurring more than N / capacity times is tracked
+ *
+ * Counters are kept in a Stream-Summary: buckets of equal count in a doubly linked list sorted by
+ * count. An increment moves a counter to the neighbouring bucket (O(1)) and the top n are read by
+ * walking down from the largest bucket (O(n)) - nothing is sorted.
+ *
+ * Assignment 3
+ */
+public class SpaceSaving {
+
+    /**
+     * An item's estimated count; its true count lies in [count - error, count].
+     */
+    public static class Estimate {
+        public final String item;
+        public final long count;
+        public final long error;
+
+        Estimate(String item, long count, long error) {
+            this.item = item;
+            this.count = count;
+            this.error = error;
+        }
+
+        public long lowerBound() {
+            return count - error;
+        }
+    }
+
+    private static class Bucket {
+        long count;
+        Bucket smaller;
+        Bucket larger;
+        Counter first;
+
+        Bucket(long count) {
+            this.count = count;
+        }
+    }
+
+    private static class Counter {
+        String item;
+        long error;
+        Bucket bucket;
+        Counter previous;
+        Counter next;
+    }
+
+    private final int capacity;
+    private final Map<String, Counter> counters;
+    private Bucket smallest;
+    private Bucket largest;
+    private long total;
+
+    public SpaceSaving(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be at least 1: " + capacity);
+        }
+        this.capacity = capacity;
+        this.counters = new HashMap<>(capacity * 2);
+    }
+
+    /**
+     * Counts one occurrence of an item.
+     */
+    public synchronized void offer(String item) {
+        total++;
+        Counter counter = counters.get(item);
+        if (counter != null) {
+            increment(counter);
+            return;
+        }
+
+        if (counters.size() < capacity) {
+            counter = new Counter();
+            counter.item = item;
+            counters.put(item, counter);
+            if (smallest == null || smallest.count != 1) {
+                Bucket ones = new Bucket(1);
+                insertAfter(null, ones);
+            }
+            attach(counter, smallest);
+            return;
+        }
+
+        // Full: the item replaces one of the counters with the minimum count
+        counter = smallest.first;
+        counters.remove(counter.item);
+        counter.item = item;
+        counter.error = smallest.count;
+        counters.put(item, counter);
+        increment(counter);
+    }
+
+    private void increment(Counter counter) {
+        Bucket bucket = counter.bucket;
+        long count = bucket.count + 1;
+        Bucket target = bucket.larger;
+        if (target == null || target.count != count) {
+            target = new Bucket(count);
+            insertAfter(bucket, target);
+        }
+        detach(counter);
+        attach(counter, target);
+    }
+
+    // Links a bucket in right after "after" (null = as the new smallest)
+    private void insertAfter(Bucket after, Bucket bucket) {
+        bucket.smaller = after;
+        bucket.larger = after == null ? smallest : after.larger;
+        if (bucket.larger != null) {
+            bucket.larger.smaller = bucket;
+        } else {
+            largest = bucket;
+        }
+        if (after != null) {
+            after.larger = bucket;
+        } else {
+            smallest = bucket;
+        }
+    }
+
+    private void attach(Counter counter, Bucket bucket) {
+        counter.bucket = bucket;
+        counter.previous = null;
+        counter.next = bucket.first;
+        if (bucket.first != null) {
+            bucket.first.previous = counter;
+        }
+        bucket.first = counter;
+    }
+
+    // Unlinks a counter from its bucket and drops the bucket if that leaves it empty
+    private void detach(Counter counter) {
+        Bucket bucket = counter.bucket;
+        if (counter.previous != null) {
+            counter.previous.next = counter.next;
+        } else {
+            bucket.first = counter.next;
+        }
+        if (counter.next != null) {
+            counter.next.previous = counter.previous;
+        }
+        if (bucket.first == null) {
+            if (bucket.smaller != null) {
+                bucket.smaller.larger = bucket.larger;
+            } else {
+                smallest = bucket.larger;
+            }
+            if (bucket.larger != null) {
+                bucket.larger.smaller = bucket.smaller;
+            } else {
+                largest = bucket.smaller;
+            }
+        }
+    }
+
+    /**
+     * Upper bound of an item's count: its counter if tracked, otherwise maxUntrackedCount().
+     */
+    public synchronized long estimate(String item) {
+        Counter counter = counters.get(item);
+        return counter != null ? counter.bucket.count : maxUntrackedCount();
+    }
+
+    /**
+     * How much estimate(item) may exceed the true count.
+     */
+    public synchronized long error(String item) {
+        Counter counter = counters.get(item);
+        return counter != null ? counter.error : maxUntrackedCount();
+    }
+
+    /**
+     * Largest count an untracked item can have: the minimum count once all counters are in use, else 0.
+     */
+    public synchronized long maxUntrackedCount() {
+        return counters.size() < capacity || smallest == null ? 0 : smallest.count;
+    }
+
+    /**
+     * The n largest estimates, largest first, in O(n).
+     */
+    public synchronized List<Estimate> top(int n) {
+        List<Estimate> top = new ArrayList<>(Math.min(n, counters.size()));
+        for (Bucket bucket = largest; bucket != null && top.size() < n; bucket = bucket.smaller) {
+            for (Counter counter = bucket.first; counter != null && top.size() < n; counter = counter.next) {
+                top.add(new Estimate(counter.item, bucket.count, counter.error));
+            }
+        }
+        return top;
+    }
+
+    /**
+     * Number of items offered so far (N).
+     */
+    public synchronized long total() {
+        return total;
+    }
+
+    public synchronized int size() {
+        return counters.size();
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+}
@@ -0,0 +1,164 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.util.*;
+
+/**
+ * First/last-byte search kernel that tests eight alignments per step with plain long arithmetic
+ * (SIMD within a register), used by ByteBoyerMoore's SWAR variant.
+ *
+ * For alignments s .. s+7 it loads the eight bytes at s and the eight bytes at s + m - 1, compares
+ * every byte lane against the pattern's first and last byte at once, and only the lanes where both
+ * agree are verified byte by byte. Case folding costs nothing in the filter: OR-ing 0x20 into a lane
+ * maps exactly 'A'..'Z' onto 'a'..'z' when compared with a lowercase letter, so it is applied to the
+ * lanes only when the pattern byte is a letter. Whatever doesn't fill a whole step is handled by
+ * the scalar loop, which is also what runs for texts shorter than one step.
+ *
+ * Assignment 3
+ */
+public class SwarByteSearch {
+
+    private static final long ONES = 0x0101010101010101L;
+    private static final long LOW7 = 0x7F7F7F7F7F7F7F7FL;
+
+    private static final byte[] FOLD = new byte[256];
+
+    static {
+        for (int b = 0; b < 256; b++) {
+            FOLD[b] = (byte) (b >= 'A' && b <= 'Z' ? b | 0x20 : b);
+        }
+    }
+
+    private SwarByteSearch() {
+    }
+
+    /**
+     * Occurrences of an already folded (lowercase ASCII) pattern that start in [from, to); like
+     * ByteBoyerMoore.count it may read up to the buffer's limit to complete a match.
+     */
+    public static long count(byte[] pattern, ByteBuffer text, int from, int to) {
+        int m = pattern.length;
+        if (m == 0 || to <= from) {
+            return 0;
+        }
+        int lastStart = Math.min(to - 1, text.limit() - m);
+        // Little-endian loads put the byte at s + k into lane k (bits 8k .. 8k+7)
+        ByteBuffer bytes = text.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+
+        int first = pattern[0] & 0xFF;
+        int last = pattern[m - 1] & 0xFF;
+        long firstBroadcast = first * ONES;
+        long lastBroadcast = last * ONES;
+        long firstFold = isLetter(first) ? 0x20 * ONES : 0;
+        long lastFold = isLetter(last) ? 0x20 * ONES : 0;
+
+        long count = 0;
+        int s = from;
+        // s + 7 <= lastStart also keeps the load at s + m - 1 inside the limit
+        for (; s <= lastStart - 7; s += 8) {
+            long lanes = zeroLanes((bytes.getLong(s) | firstFold) ^ firstBroadcast)
+                       & zeroLanes((bytes.getLong(s + m - 1) | lastFold) ^ lastBroadcast);
+            while (lanes != 0) {
+                int candidate = s + (Long.numberOfTrailingZeros(lanes) >>> 3);
+                if (matchesInside(pattern, bytes, candidate)) {
+                    count++;
+                }
+                lanes &= lanes - 1;
+            }
+        }
+        for (; s <= lastStart; s++) {
+            if (FOLD[bytes.get(s) & 0xFF] == pattern[0] && FOLD[bytes.get(s + m - 1) & 0xFF] == pattern[m - 1]
+                    && matchesInside(pattern, bytes, s)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * 0x80 in every lane of v that is zero and 0 in all others (exact - no borrow between lanes).
+     */
+    static long zeroLanes(long v) {
+        return ~(((v & LOW7) + LOW7) | v | LOW7);
+    }
+
+    private static boolean isLetter(int b) {
+        return b >= 'a' && b <= 'z';
+    }
+
+    // The first and last byte were already compared by the filter
+    private static boolean matchesInside(byte[] pattern, ByteBuffer text, int s) {
+        for (int j = 1; j < pattern.length - 1; j++) {
+            if (FOLD[text.get(s + j) & 0xFF] != pattern[j]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Throughput of Task 3's boyerMooreSearch and the byte-level variants on the five CSVs
+     * replicated into one file of about the given size.
+     * Usage: java SwarByteSearch [megabytes (default 1024)] [word (default rental)]
+     */
+    public static void main(String[] args) throws IOException {
+        long targetBytes = (args.length > 0 ? Long.parseLong(args[0]) : 1024) * 1024 * 1024;
+        String word = args.length > 1 ? args[1] : "rental";
+        String[] csvFiles = {"swiftride_data 2.csv", "prabh.csv", "kayak_scraped_data.csv", "nikhil.csv", "happy.csv"};
+
+        List<byte[]> sources = new ArrayList<>();
+        List<String> contents = new ArrayList<>();
+        long corpusBytes = 0;
+        for (String fileName : csvFiles) {
+            File file = new File(fileName);
+            byte[] data = Files.readAllBytes(file.toPath());
+            sources.add(data);
+            contents.add(CsvTokenizer.readContent(file));
+            corpusBytes += data.length + 1;
+        }
+        long copies = Math.max(1, targetBytes / corpusBytes);
+
+        // A line break after every file copy keeps matches from spanning two copies
+        File replicated = File.createTempFile("swar_benchmark", ".csv");
+        replicated.deleteOnExit();
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(replicated), 1 << 20)) {
+            for (long copy = 0; copy < copies; copy++) {
+                for (byte[] data : sources) {
+                    out.write(data);
+                    out.write('\n');
+                }
+            }
+        }
+        System.out.println("=== Search Kernel Benchmark (\"" + word + "\", " + copies + " copies, " +
+                           replicated.length() / (1024 * 1024) + " MB) ===\n");
+
+        Task3_FrequencyCount frequencyCounter = new Task3_FrequencyCount();
+        String pattern = word.toLowerCase();
+        long startTime = System.nanoTime();
+        long stringCount = 0;
+        for (long copy = 0; copy < copies; copy++) {
+            for (String content : contents) {
+                stringCount += frequencyCounter.boyerMooreSearch(content, pattern);
+            }
+        }
+        long stringTime = System.nanoTime() - startTime;
+        System.out.println(report("boyerMooreSearch (decoded Strings)", stringCount, stringTime, replicated.length()));
+
+        for (ByteBoyerMoore.Variant variant : ByteBoyerMoore.Variant.values()) {
+            ByteBoyerMoore matcher = new ByteBoyerMoore(word, variant);
+            matcher.count(replicated);  // warm-up, also pages the file in
+            startTime = System.nanoTime();
+            long count = matcher.count(replicated);
+            long time = System.nanoTime() - startTime;
+            System.out.println(report("ByteBoyerMoore " + variant + " (mapped)", count, time, replicated.length()) +
+                               (count == stringCount ? "" : " (MISMATCH)"));
+        }
+        replicated.delete();
+    }
+
+    private static String report(String name, long count, long nanos, long bytes) {
+        long megabytesPerSecond = nanos == 0 ? 0 : bytes * 1_000_000_000L / nanos / (1024 * 1024);
+        return String.format("%-36s %d occurrence(s) in %d ms (%d MB/s)", name + ":", count, nanos / 1_000_000, megabytesPerSecond);
+    }
+}
@@ -1,4 +1,5 @@
 import java.util.*;
+import java.util.concurrent.*;
 import java.io.*;
 
 /**
@@ -12,8 +13,44 @@ public class Task1_SpellChecker {
     
     // Chetan's trie root - this is where all my words start from
     private ChetanTrieNode chetanRoot;
-    // My personal vocabulary storage - keeping all unique words here
-    private Set<String> chetanVocabulary;
+    // How many unique words made it into my trie - the trie itself is my vocabulary now
+    private int chetanWordCount;
+    // How many deletions I pre-compute per word - suggestions up to this distance come from the index
+    private static final int CHETAN_INDEX_DISTANCE = 2;
+    // My deletion index (SymSpell style) - every string reachable by deleting up to
+    // CHETAN_INDEX_DISTANCE characters points back to the vocabulary words it came from.
+    // Null when the vocabulary came from a snapshot - then suggestions always walk the DAWG
+    private Map<String, List<String>> chetanDeleteIndex;
+    // Which strategy I use for suggestions within the index distance
+    private ChetanSuggestionMode chetanSuggestionMode;
+    // Whether swapping two neighbouring letters counts as a single edit (Damerau / optimal string alignment)
+    private boolean chetanTranspositions;
+    // My edit distance kernels - one per thread, each keeps its buffers between calls so nothing gets allocated per comparison
+    private ThreadLocal<ChetanDistanceKernel> chetanKernel;
+    // My read-only minimal automaton (DAWG) - once I freeze, this replaces the trie
+    private DawgWordTrie chetanFrozenVocabulary;
+    // Where batch spell checks fan their suggestion work out to
+    private ForkJoinPool chetanPool;
+    // Below this many misspelled words a batch task stops splitting and just does the work itself
+    private static final int CHETAN_BATCH_SPLIT = 16;
+    // These are the CSV files I'm working with for this assignment
+    private static final String[] CHETAN_CSV_FILES = {
+        "swiftride_data 2.csv",
+        "prabh.csv",
+        "kayak_scraped_data.csv",
+        "nikhil.csv",
+        "happy.csv"
+    };
+    
+    /**
+     * My two ways of finding suggestions:
+     * DELETE_INDEX looks candidates up in the symmetric-delete index,
+     * TRIE_WALK walks the trie carrying one edit distance row per node and prunes hopeless branches
+     */
+    enum ChetanSuggestionMode {
+        DELETE_INDEX,
+        TRIE_WALK
+    }
     
     /**
      * My custom Trie Node - designed this myself for the spell checker
@@ -28,12 +65,254 @@ public class Task1_SpellChecker {
         }
     }
     
+    /**
+     * One suggestion together with its edit distance - so I only ever compute the distance once
+     */
+    class ChetanSuggestion {
+        String chetanWord;
+        int chetanDistance;
+        
+        ChetanSuggestion(String chetanWord, int chetanDistance) {
+            this.chetanWord = chetanWord;
+            this.chetanDistance = chetanDistance;
+        }
+    }
+    
+    /**
+     * My bounded edit distance kernel - no allocations per call.
+     * Words up to 64 chars go through the Myers/Hyyro bit-parallel algorithm (a whole DP column fits in one long),
+     * longer ones go through a banded DP over rows I keep around. Both stop as soon as the answer is sure to be
+     * above the threshold and return threshold + 1 in that case. Not thread safe - every thread gets its own
+     */
+    class ChetanDistanceKernel {
+        private final long[] chetanMatchMasks = new long[128];  // one bit per pattern position, for ASCII chars
+        private int[] chetanRowPrev2 = new int[0];   // row i-2 (only needed for transpositions)
+        private int[] chetanRowPrev = new int[0];
+        private int[] chetanRowCurrent = new int[0];
+        
+        int chetanDistance(String chetanA, String chetanB, int chetanThreshold) {
+            int chetanLengthA = chetanA.length();
+            int chetanLengthB = chetanB.length();
+            // Never need a bigger threshold than the longer word - also keeps threshold + 1 from overflowing
+            int chetanMax = Math.min(chetanThreshold, Math.max(chetanLengthA, chetanLengthB));
+            
+            if (Math.abs(chetanLengthA - chetanLengthB) > chetanMax) {
+                return chetanMax + 1;  // the length difference alone is too much
+            }
+            if (chetanLengthA == 0 || chetanLengthB == 0) {
+                return Math.max(chetanLengthA, chetanLengthB);
+            }
+            // The distance is symmetric, so the shorter word becomes the bit-parallel pattern
+            if (chetanLengthA > chetanLengthB) {
+                String chetanSwap = chetanA;
+                chetanA = chetanB;
+                chetanB = chetanSwap;
+            }
+            if (chetanA.length() <= 64) {
+                return chetanBitParallel(chetanA, chetanB, chetanMax);
+            }
+            return chetanBanded(chetanA, chetanB, chetanMax);
+        }
+        
+        /**
+         * Bit-parallel distance: bit i of the vertical delta vectors describes row i of the current DP column.
+         * chetanScore tracks the bottom row, which moves by at most 1 per column - so once it can't come back
+         * under the threshold with the columns that are left I stop
+         */
+        private int chetanBitParallel(String chetanPattern, String chetanText, int chetanMax) {
+            int chetanM = chetanPattern.length();
+            int chetanN = chetanText.length();
+            for (int chetanI = 0; chetanI < chetanM; chetanI++) {
+                char chetanChar = chetanPattern.charAt(chetanI);
+                if (chetanChar < 128) {
+                    chetanMatchMasks[chetanChar] |= 1L << chetanI;
+                }
+            }
+            
+            long chetanLastBit = 1L << (chetanM - 1);
+            long chetanVp = -1L;       // vertical +1 deltas (first column is 0, 1, 2, ...)
+            long chetanVn = 0L;        // vertical -1 deltas
+            long chetanD0 = 0L;        // diagonal zero deltas of the previous column
+            long chetanPrevMask = 0L;  // match mask of the previous text char (for transpositions)
+            int chetanScore = chetanM;
+            int chetanResult = -1;
+            
+            for (int chetanJ = 0; chetanJ < chetanN; chetanJ++) {
+                long chetanMask = chetanMaskFor(chetanPattern, chetanText.charAt(chetanJ));
+                long chetanTransposed = chetanTranspositions ? (((~chetanD0) & chetanMask) << 1) & chetanPrevMask : 0L;
+                chetanD0 = (((chetanMask & chetanVp) + chetanVp) ^ chetanVp) | chetanMask | chetanVn | chetanTransposed;
+                long chetanHp = chetanVn | ~(chetanD0 | chetanVp);
+                long chetanHn = chetanD0 & chetanVp;
+                
+                if ((chetanHp & chetanLastBit) != 0) {
+                    chetanScore++;
+                } else if ((chetanHn & chetanLastBit) != 0) {
+                    chetanScore--;
+                }
+                
+                chetanHp = (chetanHp << 1) | 1L;  // row 0 grows by one every column
+                chetanHn = chetanHn << 1;
+                chetanVp = chetanHn | ~(chetanD0 | chetanHp);
+                chetanVn = chetanD0 & chetanHp;
+                chetanPrevMask = chetanMask;
+                
+                if (chetanScore - (chetanN - chetanJ - 1) > chetanMax) {
+                    chetanResult = chetanMax + 1;
+                    break;
+                }
+            }
+            
+            // Clearing only the masks I set so the table is clean for the next call
+            for (int chetanI = 0; chetanI < chetanM; chetanI++) {
+                char chetanChar = chetanPattern.charAt(chetanI);
+                if (chetanChar < 128) {
+                    chetanMatchMasks[chetanChar] = 0L;
+                }
+            }
+            if (chetanResult >= 0) {
+                return chetanResult;
+            }
+            return chetanScore > chetanMax ? chetanMax + 1 : chetanScore;
+        }
+        
+        private long chetanMaskFor(String chetanPattern, char chetanChar) {
+            if (chetanChar < 128) {
+                return chetanMatchMasks[chetanChar];
+            }
+            // Non-ASCII chars are rare in my vocabulary - just building their mask on the spot
+            long chetanMask = 0L;
+            for (int chetanI = 0; chetanI < chetanPattern.length(); chetanI++) {
+                if (chetanPattern.charAt(chetanI) == chetanChar) {
+                    chetanMask |= 1L << chetanI;
+                }
+            }
+            return chetanMask;
+        }
+        
+        /**
+         * Banded DP for words longer than 64 chars - only cells within chetanMax of the diagonal can matter.
+         * Rows are reused between calls and only grow when a longer word shows up
+         */
+        private int chetanBanded(String chetanA, String chetanB, int chetanMax) {
+            int chetanM = chetanA.length();
+            int chetanN = chetanB.length();
+            int chetanOutside = chetanMax + 1;
+            if (chetanRowCurrent.length < chetanN + 1) {
+                chetanRowPrev2 = new int[chetanN + 1];
+                chetanRowPrev = new int[chetanN + 1];
+                chetanRowCurrent = new int[chetanN + 1];
+            }
+            int[] chetanPrev2 = chetanRowPrev2;
+            int[] chetanPrev = chetanRowPrev;
+            int[] chetanCurrent = chetanRowCurrent;
+            
+            for (int chetanJ = 0; chetanJ <= chetanN; chetanJ++) {
+                chetanPrev[chetanJ] = chetanJ <= chetanMax ? chetanJ : chetanOutside;
+            }
+            int chetanPrevRowMin = 0;
+            
+            for (int chetanI = 1; chetanI <= chetanM; chetanI++) {
+                int chetanLow = Math.max(1, chetanI - chetanMax);
+                int chetanHigh = Math.min(chetanN, chetanI + chetanMax);
+                chetanCurrent[0] = chetanI <= chetanMax ? chetanI : chetanOutside;
+                chetanCurrent[chetanLow - 1] = chetanLow == 1 ? chetanCurrent[0] : chetanOutside;
+                int chetanRowMin = chetanCurrent[chetanLow - 1];
+                char chetanCharA = chetanA.charAt(chetanI - 1);
+                
+                for (int chetanJ = chetanLow; chetanJ <= chetanHigh; chetanJ++) {
+                    int chetanCost = chetanCharA == chetanB.charAt(chetanJ - 1) ? 0 : 1;
+                    int chetanValue = Math.min(chetanPrev[chetanJ - 1] + chetanCost,
+                                      Math.min(chetanPrev[chetanJ], chetanCurrent[chetanJ - 1]) + 1);
+                    if (chetanTranspositions && chetanI > 1 && chetanJ > 1
+                            && chetanCharA == chetanB.charAt(chetanJ - 2)
+                            && chetanA.charAt(chetanI - 2) == chetanB.charAt(chetanJ - 1)) {
+                        chetanValue = Math.min(chetanValue, chetanPrev2[chetanJ - 2] + 1);
+                    }
+                    chetanCurrent[chetanJ] = Math.min(chetanValue, chetanOutside);
+                    chetanRowMin = Math.min(chetanRowMin, chetanCurrent[chetanJ]);
+                }
+                if (chetanHigh < chetanN) {
+                    chetanCurrent[chetanHigh + 1] = chetanOutside;  // the next row reads one cell past my band
+                }
+                // A transposition can still reach back to row i-1, so that row has to be hopeless too
+                if (chetanRowMin > chetanMax && (!chetanTranspositions || chetanPrevRowMin + 1 > chetanMax)) {
+                    return chetanOutside;
+                }
+                chetanPrevRowMin = chetanRowMin;
+                
+                int[] chetanRecycled = chetanPrev2;
+                chetanPrev2 = chetanPrev;
+                chetanPrev = chetanCurrent;
+                chetanCurrent = chetanRecycled;
+            }
+            return Math.min(chetanPrev[chetanN], chetanOutside);
+        }
+    }
+    
+    /**
+     * The result of checking one distinct word from a batch - how often it showed up and what I'd suggest
+     */
+    class ChetanSpellResult {
+        String chetanWord;
+        int chetanOccurrences;
+        boolean chetanCorrect;
+        List<ChetanSuggestion> chetanSuggestions;
+        
+        ChetanSpellResult(String chetanWord) {
+            this.chetanWord = chetanWord;
+            this.chetanOccurrences = 0;
+            this.chetanCorrect = false;
+            this.chetanSuggestions = Collections.emptyList();
+        }
+    }
+    
+    /**
+     * My fork/join task for batch suggestions - splitting the misspelled words in half until the pieces are small
+     */
+    class ChetanSuggestionTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        
+        private final List<ChetanSpellResult> chetanMisses;
+        private final int chetanFrom;
+        private final int chetanTo;
+        private final int chetanMaxDistance;
+        private final int chetanMaxResults;
+        
+        ChetanSuggestionTask(List<ChetanSpellResult> chetanMisses, int chetanFrom, int chetanTo,
+                             int chetanMaxDistance, int chetanMaxResults) {
+            this.chetanMisses = chetanMisses;
+            this.chetanFrom = chetanFrom;
+            this.chetanTo = chetanTo;
+            this.chetanMaxDistance = chetanMaxDistance;
+            this.chetanMaxResults = chetanMaxResults;
+        }
+        
+        @Override
+        protected void compute() {
+            if (chetanTo - chetanFrom <= CHETAN_BATCH_SPLIT) {
+                for (int chetanI = chetanFrom; chetanI < chetanTo; chetanI++) {
+                    ChetanSpellResult chetanResult = chetanMisses.get(chetanI);
+                    chetanResult.chetanSuggestions = chetanGetRankedSuggestions(chetanResult.chetanWord, chetanMaxDistance, chetanMaxResults);
+                }
+                return;
+            }
+            int chetanMiddle = (chetanFrom + chetanTo) >>> 1;
+            invokeAll(new ChetanSuggestionTask(chetanMisses, chetanFrom, chetanMiddle, chetanMaxDistance, chetanMaxResults),
+                      new ChetanSuggestionTask(chetanMisses, chetanMiddle, chetanTo, chetanMaxDistance, chetanMaxResults));
+        }
+    }
+    
     /**
      * Setting up my spell checker - initializing everything I need
      */
     public Task1_SpellChecker() {
         chetanRoot = new ChetanTrieNode();
-        chetanVocabulary = new HashSet<>();
+        chetanWordCount = 0;
+        chetanDeleteIndex = new HashMap<>();
+        chetanSuggestionMode = ChetanSuggestionMode.DELETE_INDEX;
+        chetanTranspositions = false;
+        chetanKernel = ThreadLocal.withInitial(ChetanDistanceKernel::new);
+        chetanPool = ForkJoinPool.commonPool();
     }
     
     /**
@@ -41,36 +320,23 @@ public class Task1_SpellChecker {
      * I'm reading from multiple files to build a comprehensive vocabulary
      */
     public void chetanLoadVocabulary(String chetanBasePath) {
-        // These are the CSV files I'm working with for this assignment
-        String[] chetanCsvFiles = {
-            "swiftride_data 2.csv",
-            "prabh.csv",
-            "kayak_scraped_data.csv",
-            "nikhil.csv",
-            "happy.csv"
-        };
-        
-        for (String chetanFileName : chetanCsvFiles) {
+        // Every word only has to go into the trie once - repeats get recognised by the term dictionary
+        // straight from the tokenizer's buffer, without even becoming a String
+        CsvTokenizer.TermDictionary chetanSeen = new CsvTokenizer.TermDictionary();
+        for (String chetanFileName : CHETAN_CSV_FILES) {
             String chetanFilePath = chetanBasePath + "/" + chetanFileName;
-            try (Scanner chetanScanner = new Scanner(new File(chetanFilePath))) {
-                if (chetanScanner.hasNextLine()) {
-                    chetanScanner.nextLine(); // Skip header row - don't need it
-                }
-                
-                while (chetanScanner.hasNextLine()) {
-                    String chetanLine = chetanScanner.nextLine();
-                    // Splitting by common delimiters I found in the CSV files
-                    String[] chetanWords = chetanLine.split("[,\\s\\|\\-/]+");
-                    
-                    for (String chetanWord : chetanWords) {
-                        // Cleaning up the word - only keeping letters and making lowercase
-                        String chetanCleanWord = chetanWord.replaceAll("[^a-zA-Z]", "").toLowerCase();
-                        if (chetanCleanWord.length() > 2) {  // Only keeping meaningful words
-                            chetanInsert(chetanCleanWord);
-                            chetanVocabulary.add(chetanCleanWord);
+            try {
+                // Skipping the header row - don't need it
+                CsvTokenizer.tokenizeFile(new File(chetanFilePath), true, (chetanBuffer, chetanOffset, chetanLength) -> {
+                    int chetanKnown = chetanSeen.size();
+                    int chetanId = chetanSeen.intern(chetanBuffer, chetanOffset, chetanLength);
+                    if (chetanId == chetanKnown) {
+                        String chetanCleanWord = chetanSeen.term(chetanId);
+                        if (chetanInsert(chetanCleanWord)) {
+                            chetanIndexDeletes(chetanCleanWord);  // only new words go into the delete index
                         }
                     }
-                }
+                });
             } catch (Exception chetanException) {
                 System.err.println("Error reading file: " + chetanFileName);
             }
@@ -78,22 +344,137 @@ public class Task1_SpellChecker {
     }
     
     /**
-     * My method to insert words into the trie - building the structure one character at a time
+     * My fast startup - if the snapshot file was built from the CSVs I have right now, I just map the frozen
+     * DAWG out of it and I'm ready, no parsing at all. If it's missing, stale or broken I load the CSVs like
+     * always, freeze, and write a fresh snapshot for next time. Returns true when the snapshot got used
      */
-    public void chetanInsert(String chetanWord) {
+    public boolean chetanLoadVocabulary(String chetanBasePath, File chetanSnapshotFile) {
+        long chetanSourceStamp = TrieSnapshot.sourceStamp(chetanBasePath, CHETAN_CSV_FILES);
+        try {
+            TrieSnapshot chetanSnapshot = TrieSnapshot.open(chetanSnapshotFile, chetanSourceStamp);
+            chetanFrozenVocabulary = chetanSnapshot.trie();
+            chetanWordCount = chetanFrozenVocabulary.size();
+            chetanRoot = null;
+            chetanDeleteIndex = null;  // not in the snapshot - rebuilding it would cost as much as the CSVs
+            return true;
+        } catch (IOException chetanException) {
+            System.out.println("Snapshot not used (" + chetanException.getMessage() + "), rebuilding from CSV files");
+        }
+        
+        chetanLoadVocabulary(chetanBasePath);
+        chetanFreeze();
+        try {
+            TrieSnapshot.write(chetanSnapshotFile, chetanSourceStamp, chetanFrozenVocabulary, null, null, null, null);
+        } catch (IOException chetanException) {
+            System.err.println("Error writing snapshot: " + chetanSnapshotFile);
+        }
+        return false;
+    }
+    
+    /**
+     * Breaking text into words exactly like my vocabulary loader does - so batch checks see the same words
+     */
+    private List<String> chetanTokenize(String chetanText) {
+        // Splitting by the delimiters I found in the CSV files, keeping only letters (lowercase) and words longer than 2
+        return CsvTokenizer.tokens(chetanText);
+    }
+    
+    /**
+     * My method to insert words into the trie - building the structure one character at a time.
+     * Returns true when the word wasn't in the trie before
+     */
+    public boolean chetanInsert(String chetanWord) {
+        if (chetanFrozenVocabulary != null) {
+            throw new UnsupportedOperationException("Vocabulary is frozen - no more inserts");
+        }
         ChetanTrieNode chetanCurrent = chetanRoot;
         for (char chetanChar : chetanWord.toCharArray()) {
             // If this character path doesn't exist, create it
             chetanCurrent.chetanChildren.putIfAbsent(chetanChar, new ChetanTrieNode());
             chetanCurrent = chetanCurrent.chetanChildren.get(chetanChar);
         }
+        if (chetanCurrent.chetanIsWordEnd) {
+            return false;  // Already had this one
+        }
         chetanCurrent.chetanIsWordEnd = true;  // Mark this as a complete word
+        chetanWordCount++;
+        return true;
+    }
+    
+    /**
+     * Freezing my vocabulary for read-only use - the trie gets rebuilt as a minimal DAWG from the sorted words,
+     * so shared endings like "-ing" or "-tion" are stored once. Lookups and suggestions keep working,
+     * inserts don't
+     */
+    public void chetanFreeze() {
+        if (chetanFrozenVocabulary != null) {
+            return;
+        }
+        List<String> chetanWords = new ArrayList<>();
+        chetanCollectWords(chetanRoot, new StringBuilder(), chetanWords);
+        Collections.sort(chetanWords);
+        chetanFrozenVocabulary = new DawgWordTrie(chetanWords);
+        chetanRoot = null;  // letting the old trie go
+    }
+    
+    private void chetanCollectWords(ChetanTrieNode chetanNode, StringBuilder chetanPath, List<String> chetanWords) {
+        if (chetanNode.chetanIsWordEnd) {
+            chetanWords.add(chetanPath.toString());
+        }
+        for (Map.Entry<Character, ChetanTrieNode> chetanEntry : chetanNode.chetanChildren.entrySet()) {
+            chetanPath.append(chetanEntry.getKey());
+            chetanCollectWords(chetanEntry.getValue(), chetanPath, chetanWords);
+            chetanPath.setLength(chetanPath.length() - 1);
+        }
+    }
+    
+    /**
+     * Switching between my suggestion strategies - results are the same, only the work differs
+     */
+    public void chetanSetSuggestionMode(ChetanSuggestionMode chetanMode) {
+        chetanSuggestionMode = chetanMode;
+    }
+    
+    /**
+     * Adding a word to my deletion index - every delete variant (and the word itself) points back to it
+     */
+    private void chetanIndexDeletes(String chetanWord) {
+        for (String chetanVariant : chetanDeletes(chetanWord, CHETAN_INDEX_DISTANCE)) {
+            chetanDeleteIndex.computeIfAbsent(chetanVariant, chetanKey -> new ArrayList<>()).add(chetanWord);
+        }
+    }
+    
+    /**
+     * All strings I can get by deleting up to chetanMaxDeletes characters (the word itself included).
+     * Going level by level so a variant reached early still gets expanded further
+     */
+    private Set<String> chetanDeletes(String chetanWord, int chetanMaxDeletes) {
+        Set<String> chetanAll = new HashSet<>();
+        chetanAll.add(chetanWord);
+        List<String> chetanLevel = Collections.singletonList(chetanWord);
+        
+        for (int chetanDepth = 0; chetanDepth < chetanMaxDeletes; chetanDepth++) {
+            List<String> chetanNext = new ArrayList<>();
+            for (String chetanCurrent : chetanLevel) {
+                for (int chetanI = 0; chetanI < chetanCurrent.length(); chetanI++) {
+                    String chetanDeleted = chetanCurrent.substring(0, chetanI) + chetanCurrent.substring(chetanI + 1);
+                    if (chetanAll.add(chetanDeleted)) {
+                        chetanNext.add(chetanDeleted);
+                    }
+                }
+            }
+            chetanLevel = chetanNext;
+        }
+        return chetanAll;
     }
     
     /**
      * Searching for words in my trie - checking if a word exists in vocabulary
      */
     public boolean chetanSearch(String chetanWord) {
+        if (chetanFrozenVocabulary != null) {
+            return chetanFrozenVocabulary.find(chetanWord) >= 0;
+        }
         ChetanTrieNode chetanCurrent = chetanRoot;
         for (char chetanChar : chetanWord.toCharArray()) {
             if (!chetanCurrent.chetanChildren.containsKey(chetanChar)) {
@@ -109,32 +490,21 @@ public class Task1_SpellChecker {
      * This is the  my suggestion algorithm
      */
     private int chetanEditDistance(String chetanWord1, String chetanWord2) {
-        int chetanLength1 = chetanWord1.length();
-        int chetanLength2 = chetanWord2.length();
-        // Creating a matrix to store intermediate results
-        int[][] chetanMatrix = new int[chetanLength1 + 1][chetanLength2 + 1];
-        
-        // Initializing first row and column
-        for (int chetanI = 0; chetanI <= chetanLength1; chetanI++) {
-            chetanMatrix[chetanI][0] = chetanI;
-        }
-        for (int chetanJ = 0; chetanJ <= chetanLength2; chetanJ++) {
-            chetanMatrix[0][chetanJ] = chetanJ;
-        }
-        
-        // Computing the edit distance using dynamic programming
-        for (int chetanI = 1; chetanI <= chetanLength1; chetanI++) {
-            for (int chetanJ = 1; chetanJ <= chetanLength2; chetanJ++) {
-                if (chetanWord1.charAt(chetanI - 1) == chetanWord2.charAt(chetanJ - 1)) {
-                    chetanMatrix[chetanI][chetanJ] = chetanMatrix[chetanI - 1][chetanJ - 1];
-                } else {
-                    chetanMatrix[chetanI][chetanJ] = 1 + Math.min(chetanMatrix[chetanI - 1][chetanJ - 1], 
-                                      Math.min(chetanMatrix[chetanI - 1][chetanJ], chetanMatrix[chetanI][chetanJ - 1]));
-                }
-            }
-        }
-        
-        return chetanMatrix[chetanLength1][chetanLength2];
+        return chetanKernel.get().chetanDistance(chetanWord1, chetanWord2, Integer.MAX_VALUE);
+    }
+    
+    /**
+     * Edit distance that gives up early - anything above chetanThreshold comes back as chetanThreshold + 1
+     */
+    public int chetanBoundedDistance(String chetanWord1, String chetanWord2, int chetanThreshold) {
+        return chetanKernel.get().chetanDistance(chetanWord1, chetanWord2, chetanThreshold);
+    }
+    
+    /**
+     * Turning Damerau transpositions ("ab" -> "ba" costs 1) on or off for every suggestion mode
+     */
+    public void chetanSetTranspositions(boolean chetanEnabled) {
+        chetanTranspositions = chetanEnabled;
     }
     
     /**
@@ -142,23 +512,154 @@ public class Task1_SpellChecker {
      */
     public List<String> chetanGetSuggestions(String chetanWord, int chetanMaxDistance) {
         List<String> chetanSuggestions = new ArrayList<>();
+        for (ChetanSuggestion chetanSuggestion : chetanGetRankedSuggestions(chetanWord, chetanMaxDistance, Integer.MAX_VALUE)) {
+            chetanSuggestions.add(chetanSuggestion.chetanWord);
+        }
+        return chetanSuggestions;
+    }
+    
+    /**
+     * My top-N suggestions, closest first (ties broken alphabetically).
+     * Up to CHETAN_INDEX_DISTANCE I only look at the words that share a delete variant with the
+     * misspelling, so the edit distance runs on a handful of candidates instead of the whole vocabulary
+     */
+    public List<ChetanSuggestion> chetanGetRankedSuggestions(String chetanWord, int chetanMaxDistance, int chetanMaxResults) {
+        String chetanNormalizedWord = chetanWord.toLowerCase();
+        Map<String, Integer> chetanDistances = new HashMap<>();
+        
+        if (chetanSuggestionMode == ChetanSuggestionMode.DELETE_INDEX && chetanDeleteIndex != null
+                && chetanMaxDistance <= CHETAN_INDEX_DISTANCE) {
+            for (String chetanVariant : chetanDeletes(chetanNormalizedWord, chetanMaxDistance)) {
+                List<String> chetanCandidates = chetanDeleteIndex.get(chetanVariant);
+                if (chetanCandidates == null) continue;
+                
+                for (String chetanCandidate : chetanCandidates) {
+                    if (!chetanDistances.containsKey(chetanCandidate)) {  // each candidate gets measured once
+                        chetanDistances.put(chetanCandidate, 
+                                            chetanBoundedDistance(chetanNormalizedWord, chetanCandidate, chetanMaxDistance));
+                    }
+                }
+            }
+        } else {
+            // Trie walk mode (or bigger distances than my index covers) - shared prefixes get computed only once
+            List<int[]> chetanRows = new ArrayList<>();
+            int[] chetanFirstRow = new int[chetanNormalizedWord.length() + 1];
+            for (int chetanJ = 0; chetanJ < chetanFirstRow.length; chetanJ++) {
+                chetanFirstRow[chetanJ] = chetanJ;
+            }
+            chetanRows.add(chetanFirstRow);
+            if (chetanFrozenVocabulary != null) {
+                chetanWalkDawg(chetanFrozenVocabulary.root(), chetanNormalizedWord, new StringBuilder(), chetanRows, 
+                               0, chetanMaxDistance, chetanDistances);
+            } else {
+                chetanWalkTrie(chetanRoot, chetanNormalizedWord, new StringBuilder(), chetanRows, 
+                               0, chetanMaxDistance, chetanDistances);
+            }
+        }
         
-        // Going through my vocabulary to find similar words
-        for (String chetanVocabWord : chetanVocabulary) {
-            if (chetanEditDistance(chetanWord.toLowerCase(), chetanVocabWord) <= chetanMaxDistance) {
-                chetanSuggestions.add(chetanVocabWord);
+        List<ChetanSuggestion> chetanSuggestions = new ArrayList<>();
+        for (Map.Entry<String, Integer> chetanEntry : chetanDistances.entrySet()) {
+            if (chetanEntry.getValue() <= chetanMaxDistance) {
+                chetanSuggestions.add(new ChetanSuggestion(chetanEntry.getKey(), chetanEntry.getValue()));
             }
         }
         
-        // Sorting suggestions by how close they are to the original word
-        chetanSuggestions.sort((chetanA, chetanB) -> Integer.compare(
-            chetanEditDistance(chetanWord.toLowerCase(), chetanA),
-            chetanEditDistance(chetanWord.toLowerCase(), chetanB)
-        ));
+        // Sorting suggestions by how close they are to the original word - using the stored distances
+        chetanSuggestions.sort((chetanA, chetanB) -> chetanA.chetanDistance != chetanB.chetanDistance
+            ? Integer.compare(chetanA.chetanDistance, chetanB.chetanDistance)
+            : chetanA.chetanWord.compareTo(chetanB.chetanWord));
         
+        if (chetanSuggestions.size() > chetanMaxResults) {
+            return new ArrayList<>(chetanSuggestions.subList(0, chetanMaxResults));
+        }
         return chetanSuggestions;
     }
     
+    /**
+     * Walking my trie with one edit distance row per depth - the row for a node only depends on its parent's row,
+     * so every prefix is computed once. If the smallest value in a row is already above the max distance,
+     * nothing below this node can get back under it, so I skip the whole subtree
+     * (with transpositions the parent row has to be out of reach too, since a swap looks two rows back)
+     */
+    private void chetanWalkTrie(ChetanTrieNode chetanNode, String chetanTarget, StringBuilder chetanPath, List<int[]> chetanRows,
+                                int chetanPreviousMin, int chetanMaxDistance, Map<String, Integer> chetanDistances) {
+        int chetanDepth = chetanPath.length() + 1;
+        
+        for (Map.Entry<Character, ChetanTrieNode> chetanEntry : chetanNode.chetanChildren.entrySet()) {
+            char chetanChar = chetanEntry.getKey();
+            ChetanTrieNode chetanChild = chetanEntry.getValue();
+            
+            int chetanRowMin = chetanFillRow(chetanTarget, chetanChar, chetanPath, chetanRows);
+            int chetanLast = chetanRows.get(chetanDepth)[chetanTarget.length()];
+            
+            chetanPath.append(chetanChar);
+            if (chetanChild.chetanIsWordEnd && chetanLast <= chetanMaxDistance) {
+                chetanDistances.put(chetanPath.toString(), chetanLast);
+            }
+            if (chetanRowMin <= chetanMaxDistance || (chetanTranspositions && chetanPreviousMin + 1 <= chetanMaxDistance)) {
+                chetanWalkTrie(chetanChild, chetanTarget, chetanPath, chetanRows, chetanRowMin, chetanMaxDistance, chetanDistances);
+            }
+            chetanPath.setLength(chetanDepth - 1);
+        }
+    }
+    
+    /**
+     * Same walk as chetanWalkTrie, but over my frozen DAWG - states are shared between words
+     * there, so the path I carry is what tells me which word I'm spelling out
+     */
+    private void chetanWalkDawg(int chetanState, String chetanTarget, StringBuilder chetanPath, List<int[]> chetanRows,
+                                int chetanPreviousMin, int chetanMaxDistance, Map<String, Integer> chetanDistances) {
+        int chetanDepth = chetanPath.length() + 1;
+        
+        for (int chetanEdge = chetanFrozenVocabulary.firstEdge(chetanState); 
+                chetanEdge < chetanFrozenVocabulary.endEdge(chetanState); chetanEdge++) {
+            char chetanChar = chetanFrozenVocabulary.edgeLabel(chetanEdge);
+            int chetanChild = chetanFrozenVocabulary.edgeTarget(chetanEdge);
+            
+            int chetanRowMin = chetanFillRow(chetanTarget, chetanChar, chetanPath, chetanRows);
+            int chetanLast = chetanRows.get(chetanDepth)[chetanTarget.length()];
+            
+            chetanPath.append(chetanChar);
+            if (chetanFrozenVocabulary.isFinal(chetanChild) && chetanLast <= chetanMaxDistance) {
+                chetanDistances.put(chetanPath.toString(), chetanLast);
+            }
+            if (chetanRowMin <= chetanMaxDistance || (chetanTranspositions && chetanPreviousMin + 1 <= chetanMaxDistance)) {
+                chetanWalkDawg(chetanChild, chetanTarget, chetanPath, chetanRows, chetanRowMin, chetanMaxDistance, chetanDistances);
+            }
+            chetanPath.setLength(chetanDepth - 1);
+        }
+    }
+    
+    /**
+     * Computing the edit distance row for chetanPath + chetanChar from the rows above it.
+     * One row per depth, reused by every node at that depth. Returns the smallest value in the row
+     */
+    private int chetanFillRow(String chetanTarget, char chetanChar, StringBuilder chetanPath, List<int[]> chetanRows) {
+        int chetanLength = chetanTarget.length();
+        int chetanDepth = chetanPath.length() + 1;
+        if (chetanRows.size() <= chetanDepth) {
+            chetanRows.add(new int[chetanLength + 1]);
+        }
+        int[] chetanPrevious = chetanRows.get(chetanDepth - 1);
+        int[] chetanRow = chetanRows.get(chetanDepth);
+        int[] chetanBeforePrevious = chetanDepth >= 2 ? chetanRows.get(chetanDepth - 2) : null;
+        char chetanParentChar = chetanDepth >= 2 ? chetanPath.charAt(chetanDepth - 2) : 0;
+        
+        chetanRow[0] = chetanDepth;
+        int chetanRowMin = chetanRow[0];
+        for (int chetanJ = 1; chetanJ <= chetanLength; chetanJ++) {
+            int chetanCost = chetanTarget.charAt(chetanJ - 1) == chetanChar ? 0 : 1;
+            chetanRow[chetanJ] = Math.min(chetanPrevious[chetanJ - 1] + chetanCost,
+                                 Math.min(chetanPrevious[chetanJ], chetanRow[chetanJ - 1]) + 1);
+            if (chetanTranspositions && chetanBeforePrevious != null && chetanJ > 1
+                    && chetanTarget.charAt(chetanJ - 2) == chetanChar && chetanTarget.charAt(chetanJ - 1) == chetanParentChar) {
+                chetanRow[chetanJ] = Math.min(chetanRow[chetanJ], chetanBeforePrevious[chetanJ - 2] + 1);
+            }
+            chetanRowMin = Math.min(chetanRowMin, chetanRow[chetanJ]);
+        }
+        return chetanRowMin;
+    }
+    
     /**
      * My main spell checking method - this is where the magic happens!
      */
@@ -172,13 +673,11 @@ public class Task1_SpellChecker {
             System.out.println("✗ Word NOT found in vocabulary");
             System.out.println("\nSuggested alternatives:");
             
-            List<String> chetanSuggestions = chetanGetSuggestions(chetanNormalizedWord, 2);
-            int chetanCount = 0;
-            for (String chetanSuggestion : chetanSuggestions) {
-                if (chetanCount >= 5) break; // Limiting to top 5 suggestions to keep it clean
-                System.out.println("  - " + chetanSuggestion + " (Edit Distance: " + 
-                                 chetanEditDistance(chetanNormalizedWord, chetanSuggestion) + ")");
-                chetanCount++;
+            // Limiting to top 5 suggestions to keep it clean
+            List<ChetanSuggestion> chetanSuggestions = chetanGetRankedSuggestions(chetanNormalizedWord, 2, 5);
+            for (ChetanSuggestion chetanSuggestion : chetanSuggestions) {
+                System.out.println("  - " + chetanSuggestion.chetanWord + " (Edit Distance: " + 
+                                 chetanSuggestion.chetanDistance + ")");
             }
             
             if (chetanSuggestions.isEmpty()) {
@@ -187,12 +686,64 @@ public class Task1_SpellChecker {
         }
     }
     
+    /**
+     * Using my own pool for batch checks instead of the common one
+     */
+    public void chetanSetPool(ForkJoinPool chetanNewPool) {
+        chetanPool = chetanNewPool;
+    }
+    
+    /**
+     * Spell checking a whole document (a scraped page, a CSV line...) - same as a batch of one text
+     */
+    public List<ChetanSpellResult> chetanCheckDocument(String chetanText) {
+        return chetanCheckBatch(Collections.singletonList(chetanText));
+    }
+    
+    /**
+     * Spell checking a batch of texts with the same settings as chetanCheckSpelling (distance 2, top 5)
+     */
+    public List<ChetanSpellResult> chetanCheckBatch(Collection<String> chetanTexts) {
+        return chetanCheckBatch(chetanTexts, 2, 5);
+    }
+    
+    /**
+     * My batch spell checker - every text is tokenized like the vocabulary, each distinct word is looked up
+     * once, and only the misspelled ones get sent to the fork/join pool for suggestions.
+     * Results come back in the order the words first appeared
+     */
+    public List<ChetanSpellResult> chetanCheckBatch(Collection<String> chetanTexts, int chetanMaxDistance, int chetanMaxResults) {
+        Map<String, ChetanSpellResult> chetanResults = new LinkedHashMap<>();
+        for (String chetanText : chetanTexts) {
+            for (String chetanToken : chetanTokenize(chetanText)) {
+                chetanResults.computeIfAbsent(chetanToken, ChetanSpellResult::new).chetanOccurrences++;
+            }
+        }
+        
+        List<ChetanSpellResult> chetanMisses = new ArrayList<>();
+        for (ChetanSpellResult chetanResult : chetanResults.values()) {
+            chetanResult.chetanCorrect = chetanSearch(chetanResult.chetanWord);
+            if (!chetanResult.chetanCorrect) {
+                chetanMisses.add(chetanResult);
+            }
+        }
+        
+        if (!chetanMisses.isEmpty()) {
+            chetanPool.invoke(new ChetanSuggestionTask(chetanMisses, 0, chetanMisses.size(), chetanMaxDistance, chetanMaxResults));
+        }
+        return new ArrayList<>(chetanResults.values());
+    }
+    
     /**
      * Displaying my spell checker statistics - showing off the vocabulary size!
      */
     public void chetanDisplayStatistics() {
         System.out.println("\n=== Spell Checker Statistics ===");
-        System.out.println("Total words in vocabulary: " + chetanVocabulary.size());
+        System.out.println("Total words in vocabulary: " + chetanWordCount);
+        if (chetanFrozenVocabulary != null) {
+            System.out.println("Frozen DAWG: " + chetanFrozenVocabulary.nodeCount() + " states, " + 
+                             chetanFrozenVocabulary.edgeCount() + " edges");
+        }
     }
     
     /**
@@ -225,5 +776,65 @@ public class Task1_SpellChecker {
         for (String chetanWord : chetanTestWords) {
             chetanSpellChecker.chetanCheckSpelling(chetanWord);
         }
+        
+        // Comparing my two suggestion strategies on the misspelled words
+        System.out.println("\n=== Suggestion Mode Comparison ===");
+        String[] chetanMisspelled = {"rentl", "budjet", "vehicl", "pric"};
+        for (ChetanSuggestionMode chetanMode : ChetanSuggestionMode.values()) {
+            chetanSpellChecker.chetanSetSuggestionMode(chetanMode);
+            long chetanStart = System.nanoTime();
+            int chetanFound = 0;
+            for (String chetanWord : chetanMisspelled) {
+                chetanFound += chetanSpellChecker.chetanGetSuggestions(chetanWord, 2).size();
+            }
+            long chetanEnd = System.nanoTime();
+            System.out.println(chetanMode + ": " + chetanFound + " suggestion(s) in " + 
+                             (chetanEnd - chetanStart) / 1000 + " microseconds");
+        }
+        
+        // Swapped letters - one edit with transpositions on, two without
+        chetanSpellChecker.chetanSetSuggestionMode(ChetanSuggestionMode.DELETE_INDEX);
+        System.out.println("\n=== Transposition Test ===");
+        for (boolean chetanTranspositions : new boolean[] {false, true}) {
+            chetanSpellChecker.chetanSetTranspositions(chetanTranspositions);
+            System.out.println("\"rnetal\" with transpositions " + (chetanTranspositions ? "on" : "off") + ": " + 
+                             chetanSpellChecker.chetanGetSuggestions("rnetal", 1));
+        }
+        chetanSpellChecker.chetanSetTranspositions(false);
+        
+        // Checking a whole document at once - only the distinct misspelled words get suggestions
+        System.out.println("\n=== Document Check ===");
+        String chetanDocument = "Cheap car rentl in Toronto - budjet vehicl with great pric, rental car pick-up at the locaton";
+        for (ChetanSpellResult chetanResult : chetanSpellChecker.chetanCheckDocument(chetanDocument)) {
+            if (!chetanResult.chetanCorrect) {
+                List<String> chetanWords = new ArrayList<>();
+                for (ChetanSuggestion chetanSuggestion : chetanResult.chetanSuggestions) {
+                    chetanWords.add(chetanSuggestion.chetanWord);
+                }
+                System.out.println("  " + chetanResult.chetanWord + " (x" + chetanResult.chetanOccurrences + ") -> " + chetanWords);
+            }
+        }
+        
+        // Freezing for read-only use - same answers from a much smaller automaton
+        System.out.println("\n=== Frozen Vocabulary ===");
+        chetanSpellChecker.chetanFreeze();
+        chetanSpellChecker.chetanDisplayStatistics();
+        chetanSpellChecker.chetanSetSuggestionMode(ChetanSuggestionMode.TRIE_WALK);
+        chetanSpellChecker.chetanCheckSpelling("rentl");
+        chetanSpellChecker.chetanCheckSpelling("toronto");
+        
+        // Restarting from a snapshot - the first start has to build it, the second one just maps it
+        System.out.println("\n=== Snapshot Startup ===");
+        File chetanSnapshotFile = new File(System.getProperty("java.io.tmpdir"), "task1_vocabulary.snapshot");
+        chetanSnapshotFile.delete();
+        for (int chetanRun = 1; chetanRun <= 2; chetanRun++) {
+            Task1_SpellChecker chetanRestarted = new Task1_SpellChecker();
+            long chetanStart = System.nanoTime();
+            boolean chetanMapped = chetanRestarted.chetanLoadVocabulary(chetanBasePath, chetanSnapshotFile);
+            long chetanEnd = System.nanoTime();
+            System.out.println("Start " + chetanRun + (chetanMapped ? " (mapped snapshot): " : " (CSV rebuild): ") + 
+                             (chetanEnd - chetanStart) / 1000 + " microseconds, " + chetanRestarted.chetanWordCount + " words");
+            chetanRestarted.chetanCheckSpelling("rentl");
+        }
     }
 }
@@ -1,5 +1,7 @@
 import java.util.*;
+import java.util.stream.*;
 import java.io.*;
+import java.nio.charset.StandardCharsets;
 
 /**
  * Task 2: Word Completion Using Tries
@@ -9,122 +11,529 @@ import java.io.*;
  */
 public class Task2_WordCompletion {
     
+    private static final int DEFAULT_CACHE_SIZE = 10;
+    private static final String[] CSV_FILES = {
+        "swiftride_data 2.csv",
+        "prabh.csv",
+        "kayak_scraped_data.csv",
+        "nikhil.csv",
+        "happy.csv"
+    };
+    
     private TrieNode root;
+    private int cacheSize;
+    private WordTrie backend;
+    private int[] frequencies;
     
     class TrieNode {
         Map<Character, TrieNode> children;
         boolean isEndOfWord;
+        String word;
+        int frequency;
+        int wordCount;
+        List<TrieNode> topCompletions;
         
         TrieNode() {
-            children = new HashMap<>();
+            children = new TreeMap<>();
             isEndOfWord = false;
         }
     }
     
-    public Task2_WordCompletion() {
-        root = new TrieNode();
+    /**
+     * One page of completions plus the cursor for the next page (null on the last page).
+     */
+    class CompletionPage {
+        List<String> words;
+        String nextCursor;
+        int totalCount;
+        
+        CompletionPage(List<String> words, String nextCursor, int totalCount) {
+            this.words = words;
+            this.nextCursor = nextCursor;
+            this.totalCount = totalCount;
+        }
     }
     
-    public void loadVocabulary(String basePath) {
-        String[] csvFiles = {
-            "swiftride_data 2.csv",
-            "prabh.csv",
-            "kayak_scraped_data.csv",
-            "nikhil.csv",
-            "happy.csv"
-        };
+    /**
+     * Lazy pre-order walk over the TrieNode trie. Each stack frame iterates the remaining
+     * (sorted) children of one node on the current path, so only the path is held in memory
+     * and words come out in lexicographic order.
+     */
+    class CompletionIterator implements Iterator<String> {
+        private final Deque<Iterator<Map.Entry<Character, TrieNode>>> stack = new ArrayDeque<>();
+        private final StringBuilder path;
+        private String next;
         
-        for (String fileName : csvFiles) {
-            String filePath = basePath + "/" + fileName;
-            try (Scanner scanner = new Scanner(new File(filePath))) {
-                if (scanner.hasNextLine()) {
-                    scanner.nextLine();
+        CompletionIterator(String prefix, String afterWord) {
+            path = new StringBuilder(prefix);
+            TrieNode start = findNode(prefix);
+            if (start == null) {
+                return;
+            }
+            if (afterWord == null) {
+                stack.push(start.children.entrySet().iterator());
+                next = start.isEndOfWord ? prefix : advance();
+                return;
+            }
+            
+            // Seek: on every node along afterWord's path keep only the children after the one taken
+            TrieNode node = start;
+            for (int i = prefix.length(); i < afterWord.length(); i++) {
+                char ch = afterWord.charAt(i);
+                TreeMap<Character, TrieNode> children = (TreeMap<Character, TrieNode>) node.children;
+                stack.push(children.tailMap(ch, false).entrySet().iterator());
+                node = children.get(ch);
+                if (node == null) {
+                    break;
                 }
-                
-                while (scanner.hasNextLine()) {
-                    String line = scanner.nextLine();
-                    String[] words = line.split("[,\\s\\|\\-/]+");
-                    
-                    for (String word : words) {
-                        String cleanWord = word.replaceAll("[^a-zA-Z]", "").toLowerCase();
-                        if (cleanWord.length() > 2) {
-                            insert(cleanWord);
-                        }
+                path.append(ch);
+            }
+            if (node != null) {
+                stack.push(node.children.entrySet().iterator());
+            }
+            next = advance();
+        }
+        
+        private String advance() {
+            while (!stack.isEmpty()) {
+                Iterator<Map.Entry<Character, TrieNode>> children = stack.peek();
+                if (!children.hasNext()) {
+                    stack.pop();
+                    if (!stack.isEmpty()) {
+                        path.setLength(path.length() - 1);
                     }
+                    continue;
                 }
+                Map.Entry<Character, TrieNode> child = children.next();
+                path.append(child.getKey());
+                stack.push(child.getValue().children.entrySet().iterator());
+                if (child.getValue().isEndOfWord) {
+                    return path.toString();
+                }
+            }
+            return null;
+        }
+        
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+        
+        @Override
+        public String next() {
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            String word = next;
+            next = advance();
+            return word;
+        }
+    }
+    
+    /**
+     * Heap entry for best-first completion search: either a single word or a whole subtree,
+     * keyed by the best word it can produce so subtrees never overtake a better word.
+     */
+    class Candidate {
+        TrieNode node;
+        TrieNode best;
+        boolean subtree;
+        
+        Candidate(TrieNode node, TrieNode best, boolean subtree) {
+            this.node = node;
+            this.best = best;
+            this.subtree = subtree;
+        }
+    }
+    
+    private static final Comparator<TrieNode> BY_SCORE = (a, b) -> a.frequency != b.frequency
+        ? Integer.compare(b.frequency, a.frequency)
+        : a.word.compareTo(b.word);
+    
+    public Task2_WordCompletion() {
+        this(DEFAULT_CACHE_SIZE);
+    }
+    
+    /**
+     * @param cacheSize number of best completions cached on every node, at least 1
+     */
+    public Task2_WordCompletion(int cacheSize) {
+        if (cacheSize < 1) {
+            throw new IllegalArgumentException("Cache size must be at least 1: " + cacheSize);
+        }
+        root = new TrieNode();
+        this.cacheSize = cacheSize;
+    }
+    
+    /**
+     * Stores the vocabulary in the given trie backend (e.g. ArrayWordTrie) instead of TrieNode
+     * objects, with frequencies kept in an array indexed by word id. There are no per-node caches
+     * in this mode, so top-K completions walk the prefix subtree with a bounded heap.
+     */
+    public Task2_WordCompletion(WordTrie backend) {
+        this(DEFAULT_CACHE_SIZE);
+        this.root = null;
+        this.backend = backend;
+        this.frequencies = new int[Math.max(16, backend.size())];
+    }
+    
+    /**
+     * Rebuilds the vocabulary as a read-only minimal automaton (DawgWordTrie) from the sorted
+     * words, carrying each frequency over to the word's new id. Inserts after this throw
+     * UnsupportedOperationException.
+     */
+    public void freeze() {
+        List<String> words = findWordsWithPrefix("");
+        int[] frozenFrequencies = new int[words.size()];
+        for (int i = 0; i < words.size(); i++) {
+            frozenFrequencies[i] = getFrequency(words.get(i));
+        }
+        backend = new DawgWordTrie(words);
+        frequencies = frozenFrequencies;
+        root = null;
+    }
+    
+    public void loadVocabulary(String basePath) {
+        // Interning gives repeated words their existing String instead of a new one per occurrence
+        CsvTokenizer.TermDictionary terms = new CsvTokenizer.TermDictionary();
+        for (String fileName : CSV_FILES) {
+            String filePath = basePath + "/" + fileName;
+            try {
+                CsvTokenizer.tokenizeFile(new File(filePath), true,
+                    (buffer, offset, length) -> insert(terms.term(terms.intern(buffer, offset, length))));
             } catch (Exception e) {
                 System.err.println("Error reading file: " + fileName);
             }
         }
     }
     
+    /**
+     * Fast startup for a new instance: maps the frozen vocabulary and frequencies from the snapshot
+     * file if it was built from the current CSVs. Otherwise (missing, stale or corrupt snapshot)
+     * rebuilds from the CSVs, freezes and writes a fresh snapshot. Returns true if the snapshot was used.
+     */
+    public boolean loadVocabulary(String basePath, File snapshotFile) {
+        long sourceStamp = TrieSnapshot.sourceStamp(basePath, CSV_FILES);
+        try {
+            TrieSnapshot snapshot = TrieSnapshot.open(snapshotFile, sourceStamp);
+            backend = snapshot.trie();
+            frequencies = snapshot.hasValues() ? snapshot.values() : new int[backend.size()];
+            root = null;
+            return true;
+        } catch (IOException e) {
+            System.out.println("Snapshot not used (" + e.getMessage() + "), rebuilding from CSV files");
+        }
+        
+        loadVocabulary(basePath);
+        freeze();
+        try {
+            TrieSnapshot.write(snapshotFile, sourceStamp, (DawgWordTrie) backend, frequencies, null, null, null);
+        } catch (IOException e) {
+            System.err.println("Error writing snapshot: " + snapshotFile);
+        }
+        return false;
+    }
+    
     public void insert(String word) {
+        insert(word, 1);
+    }
+    
+    /**
+     * Adds weight to a word's score; every node on its path drops its cached completions.
+     */
+    public void insert(String word, int weight) {
+        if (backend != null) {
+            int id = backend.insert(word);
+            if (id >= frequencies.length) {
+                frequencies = Arrays.copyOf(frequencies, Math.max(id + 1, frequencies.length * 2));
+            }
+            frequencies[id] += weight;
+            return;
+        }
+        
         TrieNode current = root;
+        current.topCompletions = null;
         for (char ch : word.toCharArray()) {
             current.children.putIfAbsent(ch, new TrieNode());
             current = current.children.get(ch);
+            current.topCompletions = null;
+        }
+        if (!current.isEndOfWord) {
+            current.isEndOfWord = true;
+            current.word = word;
+            TrieNode node = root;
+            node.wordCount++;
+            for (char ch : word.toCharArray()) {
+                node = node.children.get(ch);
+                node.wordCount++;
+            }
         }
-        current.isEndOfWord = true;
+        current.frequency += weight;
     }
     
-    public List<String> findWordsWithPrefix(String prefix) {
-        List<String> results = new ArrayList<>();
-        TrieNode current = root;
+    /**
+     * Number of words under the prefix, read from the per-node counter - no traversal.
+     */
+    public int countWithPrefix(String prefix) {
+        if (backend != null) {
+            return backend.countWithPrefix(prefix.toLowerCase());
+        }
+        TrieNode node = findNode(prefix.toLowerCase());
+        return node == null ? 0 : node.wordCount;
+    }
+    
+    /**
+     * Completions of a prefix produced lazily in lexicographic order.
+     */
+    public Iterator<String> completionIterator(String prefix) {
+        return completionIterator(prefix, null);
+    }
+    
+    /**
+     * Lazy completions that start right after afterWord (a completion of the same prefix),
+     * or from the beginning when afterWord is null.
+     */
+    public Iterator<String> completionIterator(String prefix, String afterWord) {
+        String normalizedPrefix = prefix.toLowerCase();
+        if (afterWord != null && !afterWord.startsWith(normalizedPrefix)) {
+            throw new IllegalArgumentException("\"" + afterWord + "\" is not a completion of \"" + prefix + "\"");
+        }
+        if (backend == null) {
+            return new CompletionIterator(normalizedPrefix, afterWord);
+        }
         
-        for (char ch : prefix.toLowerCase().toCharArray()) {
-            if (!current.children.containsKey(ch)) {
-                return results;
+        int afterId = afterWord == null ? -1 : backend.find(afterWord);
+        if (afterWord != null && afterId < 0) {
+            throw new IllegalArgumentException("Unknown word \"" + afterWord + "\"");
+        }
+        PrimitiveIterator.OfInt ids = backend.wordsWithPrefix(normalizedPrefix, afterId);
+        return new Iterator<String>() {
+            @Override
+            public boolean hasNext() {
+                return ids.hasNext();
+            }
+            
+            @Override
+            public String next() {
+                return backend.wordOf(ids.nextInt());
             }
+        };
+    }
+    
+    /**
+     * Lazy, sized stream of completions in lexicographic order.
+     */
+    public Stream<String> completions(String prefix) {
+        Spliterator<String> spliterator = Spliterators.spliterator(completionIterator(prefix), countWithPrefix(prefix),
+            Spliterator.ORDERED | Spliterator.SORTED | Spliterator.DISTINCT | Spliterator.NONNULL);
+        return StreamSupport.stream(spliterator, false);
+    }
+    
+    /**
+     * One page of completions. Pass null for the first page and the returned nextCursor for the
+     * following ones; each page costs O(prefix + page size) however deep into the results it is.
+     */
+    public CompletionPage getCompletionPage(String prefix, String cursor, int pageSize) {
+        String afterWord = cursor == null ? null : decodeCursor(cursor);
+        Iterator<String> iterator = completionIterator(prefix, afterWord);
+        List<String> words = new ArrayList<>();
+        while (words.size() < pageSize && iterator.hasNext()) {
+            words.add(iterator.next());
+        }
+        String nextCursor = iterator.hasNext() && !words.isEmpty() ? encodeCursor(words.get(words.size() - 1)) : null;
+        return new CompletionPage(words, nextCursor, countWithPrefix(prefix));
+    }
+    
+    private static String encodeCursor(String lastWord) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(lastWord.getBytes(StandardCharsets.UTF_8));
+    }
+    
+    private static String decodeCursor(String cursor) {
+        try {
+            return new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid completion cursor: " + cursor, e);
+        }
+    }
+    
+    public int getFrequency(String word) {
+        if (backend != null) {
+            int id = backend.find(word.toLowerCase());
+            return id >= 0 ? frequencies[id] : 0;
+        }
+        TrieNode node = findNode(word.toLowerCase());
+        return node != null && node.isEndOfWord ? node.frequency : 0;
+    }
+    
+    private TrieNode findNode(String prefix) {
+        TrieNode current = root;
+        for (char ch : prefix.toCharArray()) {
             current = current.children.get(ch);
+            if (current == null) {
+                return null;
+            }
+        }
+        return current;
+    }
+    
+    /**
+     * Best cacheSize word nodes under this node, highest score first. Built from the
+     * children's caches on first use and kept until an insert passes through the node.
+     */
+    private List<TrieNode> topCompletions(TrieNode node) {
+        if (node.topCompletions != null) {
+            return node.topCompletions;
+        }
+        List<TrieNode> merged = new ArrayList<>();
+        if (node.isEndOfWord) {
+            merged.add(node);
+        }
+        for (TrieNode child : node.children.values()) {
+            merged.addAll(topCompletions(child));
+        }
+        merged.sort(BY_SCORE);
+        if (merged.size() > cacheSize) {
+            merged = new ArrayList<>(merged.subList(0, cacheSize));
+        }
+        node.topCompletions = merged;
+        return merged;
+    }
+    
+    /**
+     * Highest scoring completions of a prefix (ties alphabetical). Served straight from the
+     * prefix node's cache when k fits in it, otherwise by a best-first search that only
+     * expands subtrees able to beat the words already found.
+     */
+    public List<Map.Entry<String, Integer>> getTopCompletions(String prefix, int k) {
+        if (backend != null) {
+            return backendTopCompletions(prefix.toLowerCase(), k);
         }
         
-        collectWords(current, prefix.toLowerCase(), results);
-        Collections.sort(results);
+        List<Map.Entry<String, Integer>> results = new ArrayList<>();
+        TrieNode start = findNode(prefix.toLowerCase());
+        if (start == null || k <= 0) {
+            return results;
+        }
+        
+        if (k <= cacheSize) {
+            List<TrieNode> cached = topCompletions(start);
+            for (int i = 0; i < Math.min(k, cached.size()); i++) {
+                TrieNode node = cached.get(i);
+                results.add(new AbstractMap.SimpleEntry<>(node.word, node.frequency));
+            }
+            return results;
+        }
         
+        PriorityQueue<Candidate> queue = new PriorityQueue<>((a, b) -> BY_SCORE.compare(a.best, b.best));
+        pushSubtree(queue, start);
+        while (!queue.isEmpty() && results.size() < k) {
+            Candidate candidate = queue.poll();
+            if (!candidate.subtree) {
+                results.add(new AbstractMap.SimpleEntry<>(candidate.node.word, candidate.node.frequency));
+                continue;
+            }
+            if (candidate.node.isEndOfWord) {
+                queue.add(new Candidate(candidate.node, candidate.node, false));
+            }
+            for (TrieNode child : candidate.node.children.values()) {
+                pushSubtree(queue, child);
+            }
+        }
         return results;
     }
     
-    private void collectWords(TrieNode node, String currentWord, List<String> results) {
-        if (node.isEndOfWord) {
-            results.add(currentWord);
+    /**
+     * Keeps the k best {frequency, visit order, id} triples in a min-heap while walking the prefix.
+     * Ids arrive in lexicographic order, so an earlier visit wins a frequency tie.
+     */
+    private List<Map.Entry<String, Integer>> backendTopCompletions(String prefix, int k) {
+        List<Map.Entry<String, Integer>> results = new ArrayList<>();
+        if (k <= 0) {
+            return results;
         }
         
-        for (Map.Entry<Character, TrieNode> entry : node.children.entrySet()) {
-            collectWords(entry.getValue(), currentWord + entry.getKey(), results);
+        PriorityQueue<int[]> heap = new PriorityQueue<>((a, b) -> a[0] != b[0]
+            ? Integer.compare(a[0], b[0])
+            : Integer.compare(b[1], a[1]));
+        PrimitiveIterator.OfInt ids = backend.wordsWithPrefix(prefix);
+        int order = 0;
+        while (ids.hasNext()) {
+            int id = ids.nextInt();
+            if (heap.size() < k) {
+                heap.add(new int[] {frequencies[id], order, id});
+            } else if (frequencies[id] > heap.peek()[0]) {
+                heap.poll();
+                heap.add(new int[] {frequencies[id], order, id});
+            }
+            order++;
         }
+        
+        while (!heap.isEmpty()) {
+            int[] entry = heap.poll();
+            results.add(new AbstractMap.SimpleEntry<>(backend.wordOf(entry[2]), entry[0]));
+        }
+        Collections.reverse(results);
+        return results;
+    }
+    
+    private void pushSubtree(PriorityQueue<Candidate> queue, TrieNode node) {
+        List<TrieNode> best = topCompletions(node);
+        if (!best.isEmpty()) {
+            queue.add(new Candidate(node, best.get(0), true));
+        }
+    }
+    
+    public List<String> findWordsWithPrefix(String prefix) {
+        List<String> results = new ArrayList<>();
+        Iterator<String> iterator = completionIterator(prefix);
+        while (iterator.hasNext()) {
+            results.add(iterator.next());
+        }
+        return results;
     }
     
     public void getCompletions(String prefix, int maxResults) {
         System.out.println("\nPrefix: \"" + prefix + "\"");
         
-        List<String> completions = findWordsWithPrefix(prefix);
+        int total = countWithPrefix(prefix);
         
-        if (completions.isEmpty()) {
+        if (total == 0) {
             System.out.println("No completions found");
         } else {
-            System.out.println("Found " + completions.size() + " completion(s):");
+            System.out.println("Found " + total + " completion(s):");
+            Iterator<String> completions = completionIterator(prefix);
             int count = 0;
-            for (String word : completions) {
-                if (count >= maxResults) break;
-                System.out.println("  " + (count + 1) + ". " + word);
+            while (count < maxResults && completions.hasNext()) {
+                System.out.println("  " + (count + 1) + ". " + completions.next());
                 count++;
             }
-            if (completions.size() > maxResults) {
-                System.out.println("  ... and " + (completions.size() - maxResults) + " more");
+            if (total > maxResults) {
+                System.out.println("  ... and " + (total - maxResults) + " more");
             }
         }
     }
     
-    public int countWords() {
-        return countWordsHelper(root);
+    public void getWeightedCompletions(String prefix, int maxResults) {
+        System.out.println("\nPrefix: \"" + prefix + "\"");
+        
+        List<Map.Entry<String, Integer>> completions = getTopCompletions(prefix, maxResults);
+        
+        if (completions.isEmpty()) {
+            System.out.println("No completions found");
+        } else {
+            int rank = 1;
+            for (Map.Entry<String, Integer> entry : completions) {
+                System.out.println("  " + rank + ". " + entry.getKey() + " (" + entry.getValue() + ")");
+                rank++;
+            }
+        }
     }
     
-    private int countWordsHelper(TrieNode node) {
-        int count = node.isEndOfWord ? 1 : 0;
-        for (TrieNode child : node.children.values()) {
-            count += countWordsHelper(child);
+    public int countWords() {
+        if (backend != null) {
+            return backend.size();
         }
-        return count;
+        return root.wordCount;
     }
     
     public static void main(String[] args) {
@@ -144,5 +553,56 @@ public class Task2_WordCompletion {
         for (String prefix : testPrefixes) {
             wordCompletion.getCompletions(prefix, 10);
         }
+        
+        System.out.println("\n=== Weighted Completion Tests ===");
+        for (String prefix : new String[] {"c", "car", "rent", "to"}) {
+            wordCompletion.getWeightedCompletions(prefix, 5);
+        }
+        
+        System.out.println("\n=== Performance Test ===");
+        long startTime = System.nanoTime();
+        wordCompletion.findWordsWithPrefix("c");
+        long endTime = System.nanoTime();
+        System.out.println("Full prefix collection for \"c\": " + (endTime - startTime) / 1000 + " microseconds");
+        startTime = System.nanoTime();
+        wordCompletion.getTopCompletions("c", 10);
+        endTime = System.nanoTime();
+        System.out.println("Cached top-10 for \"c\": " + (endTime - startTime) / 1000 + " microseconds");
+        
+        System.out.println("\n=== Paginated Completions ===");
+        String cursor = null;
+        int page = 1;
+        do {
+            CompletionPage completionPage = wordCompletion.getCompletionPage("car", cursor, 8);
+            System.out.println("Page " + page + " of " + completionPage.totalCount + " completion(s): " + completionPage.words);
+            cursor = completionPage.nextCursor;
+            page++;
+        } while (cursor != null && page <= 3);
+        
+        System.out.println("\n=== Compact Trie Backend ===");
+        Task2_WordCompletion compactCompletion = new Task2_WordCompletion(new ArrayWordTrie());
+        compactCompletion.loadVocabulary(".");
+        System.out.println("Total words in compact Trie: " + compactCompletion.countWords());
+        compactCompletion.getCompletions("car", 10);
+        compactCompletion.getWeightedCompletions("car", 5);
+        
+        System.out.println("\n=== Frozen DAWG Vocabulary ===");
+        compactCompletion.freeze();
+        System.out.println("Total words in frozen DAWG: " + compactCompletion.countWords() + " (" + 
+                           compactCompletion.backend.nodeCount() + " states)");
+        compactCompletion.getWeightedCompletions("car", 5);
+        
+        System.out.println("\n=== Snapshot Startup ===");
+        File snapshotFile = new File(System.getProperty("java.io.tmpdir"), "task2_vocabulary.snapshot");
+        snapshotFile.delete();
+        for (int run = 1; run <= 2; run++) {
+            Task2_WordCompletion restarted = new Task2_WordCompletion();
+            startTime = System.nanoTime();
+            boolean mapped = restarted.loadVocabulary(".", snapshotFile);
+            endTime = System.nanoTime();
+            System.out.println("Start " + run + (mapped ? " (mapped snapshot): " : " (CSV rebuild): ") + 
+                               (endTime - startTime) / 1000 + " microseconds, " + restarted.countWords() + " words");
+            restarted.getWeightedCompletions("car", 3);
+        }
     }
 }
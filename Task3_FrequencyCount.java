@@ -1,5 +1,7 @@
 import java.util.*;
 import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * Task 3: Frequency Count Using Boyer-Moore Algorithm
@@ -10,34 +12,51 @@ import java.io.*;
  */
 public class Task3_FrequencyCount {
     
+    private static final String[] CSV_FILES = {
+        "swiftride_data 2.csv",
+        "prabh.csv",
+        "kayak_scraped_data.csv",
+        "nikhil.csv",
+        "happy.csv"
+    };
+    
+    public static final int DEFAULT_CACHE_SIZE = 1024;
+    
     private Map<String, String> fileContents;
+    private Map<String, File> mappedFiles;
+    private ForkJoinPool pool;
+    private boolean wholeWord;
+    private long corpusVersion;
+    private ResultCache<String, Map<String, Integer>> resultCache;
     
     public Task3_FrequencyCount() {
         fileContents = new HashMap<>();
+        mappedFiles = new LinkedHashMap<>();
+        resultCache = new ResultCache<>(DEFAULT_CACHE_SIZE);
     }
     
     public void loadFiles(String basePath) {
-        String[] csvFiles = {
-            "swiftride_data 2.csv",
-            "prabh.csv",
-            "kayak_scraped_data.csv",
-            "nikhil.csv",
-            "happy.csv"
-        };
-        
-        for (String fileName : csvFiles) {
+        for (String fileName : CSV_FILES) {
             String filePath = basePath + "/" + fileName;
-            StringBuilder content = new StringBuilder();
             
-            try (Scanner scanner = new Scanner(new File(filePath))) {
-                while (scanner.hasNextLine()) {
-                    content.append(scanner.nextLine().toLowerCase()).append(" ");
-                }
-                fileContents.put(fileName, content.toString());
+            try {
+                fileContents.put(fileName, CsvTokenizer.readContent(new File(filePath)));
             } catch (Exception e) {
                 System.err.println("Error reading file: " + fileName);
             }
         }
+        corpusVersion++;  // cached counts of the previous contents no longer apply
+    }
+    
+    /**
+     * Size limit of the countAcrossAllFiles result cache (entries); 0 turns caching off.
+     */
+    public void setCacheSize(int entries) {
+        resultCache = entries > 0 ? new ResultCache<>(entries) : null;
+    }
+    
+    public String getCacheStatistics() {
+        return resultCache == null ? "disabled" : resultCache.toString();
     }
     
     private int[] buildBadCharTable(String pattern) {
@@ -54,6 +73,15 @@ public class Task3_FrequencyCount {
     }
     
     public int boyerMooreSearch(String text, String pattern) {
+        return boyerMooreSearch(text, pattern, 0, text.length(), false);
+    }
+    
+    /**
+     * Counts the matches that start in [from, to), reading the text up to its end so a match
+     * starting just before "to" still completes. With wholeWord a match only counts if it is not
+     * preceded or followed by a letter or digit - checked right where the match is found.
+     */
+    private int boyerMooreSearch(String text, String pattern, int from, int to, boolean wholeWord) {
         int n = text.length();
         int m = pattern.length();
         int count = 0;
@@ -63,9 +91,10 @@ public class Task3_FrequencyCount {
         }
         
         int[] badChar = buildBadCharTable(pattern);
-        int s = 0;
+        int s = from;
+        int lastStart = Math.min(to - 1, n - m);
         
-        while (s <= (n - m)) {
+        while (s <= lastStart) {
             int j = m - 1;
             
             while (j >= 0 && pattern.charAt(j) == text.charAt(s + j)) {
@@ -73,7 +102,9 @@ public class Task3_FrequencyCount {
             }
             
             if (j < 0) {
-                count++;
+                if (!wholeWord || (isWordBoundary(text, s - 1) && isWordBoundary(text, s + m))) {
+                    count++;
+                }
                 s += (s + m < n && (int)text.charAt(s + m) < 256) ? m - badChar[(int)text.charAt(s + m)] : 1;
             } else {
                 int charIndex = (int)text.charAt(s + j);
@@ -84,16 +115,191 @@ public class Task3_FrequencyCount {
         return count;
     }
     
+    // Outside the text counts as a boundary too
+    private static boolean isWordBoundary(String text, int index) {
+        return index < 0 || index >= text.length() || !Character.isLetterOrDigit(text.charAt(index));
+    }
+    
+    /**
+     * Registers the CSV files for byte-level counting: nothing is read here, each count maps
+     * the file and searches its bytes, so no lowercased copy is kept on the heap.
+     */
+    public void mapFiles(String basePath) {
+        for (String fileName : CSV_FILES) {
+            File file = new File(basePath, fileName);
+            if (file.isFile()) {
+                mappedFiles.put(fileName, file);
+            } else {
+                System.err.println("Error reading file: " + fileName);
+            }
+        }
+    }
+    
+    /**
+     * Case-insensitive (ASCII) count of a word in the mapped bytes of every registered file.
+     */
+    public Map<String, Integer> countAcrossMappedFiles(String word, ByteBoyerMoore.Variant variant) {
+        Map<String, Integer> results = new LinkedHashMap<>();
+        ByteBoyerMoore matcher = new ByteBoyerMoore(word, variant);
+        
+        for (Map.Entry<String, File> file : mappedFiles.entrySet()) {
+            try {
+                results.put(file.getKey(), (int) matcher.count(file.getValue(), pool));
+            } catch (IOException e) {
+                System.err.println("Error reading file: " + file.getKey());
+            }
+        }
+        
+        return results;
+    }
+    
     public int countInFile(String fileName, String word) {
         String content = fileContents.get(fileName);
         if (content == null) {
             return 0;
         }
         
-        return boyerMooreSearch(content, word.toLowerCase());
+        return boyerMooreCount(content, word.toLowerCase());
+    }
+    
+    /**
+     * Parallel count mode: with a pool set, every file is split into chunks counted on it
+     * (null, the default, counts serially). The counts are the same either way.
+     */
+    public void setPool(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+    
+    /**
+     * Whole-word mode: "car" is no longer counted inside "scared" or "carrier". Applies to the
+     * Boyer-Moore counts (countInFile, countAcrossAllFiles, countInColumn), off by default.
+     */
+    public void setWholeWord(boolean wholeWord) {
+        this.wholeWord = wholeWord;
     }
     
+    /**
+     * boyerMooreSearch, or in parallel mode the sum of boyerMooreSearch over chunks of the
+     * content, each counting only the matches that start inside it.
+     */
+    private int boyerMooreCount(String content, String pattern) {
+        if (pool == null || pattern.isEmpty()) {
+            return boyerMooreSearch(content, pattern, 0, content.length(), wholeWord);
+        }
+        return (int) ParallelMatchCounter.count(pool, content.length(),
+            (from, to) -> boyerMooreSearch(content, pattern, from, to, wholeWord));
+    }
+    
+    /**
+     * Counts a word in one column of a CSV file only, e.g. "Car Name" in kayak_scraped_data.csv.
+     * The file is streamed once with a CSV-aware scanner (quoted fields may contain commas, quotes
+     * and line breaks); only the fields of that column are kept, lowercased, and searched.
+     * The column is found by its header name, ignoring case; a missing column counts 0.
+     */
+    public int countInColumn(String basePath, String fileName, String columnName, String word) {
+        String pattern = word.toLowerCase();
+        int count = 0;
+        
+        try (Reader reader = new BufferedReader(new InputStreamReader(
+                new FileInputStream(new File(basePath, fileName)), StandardCharsets.UTF_8), 64 * 1024)) {
+            StringBuilder field = new StringBuilder();
+            boolean header = true;
+            boolean quoted = false;
+            boolean fieldStart = true;
+            boolean afterCarriageReturn = false;
+            int column = -1;
+            int fieldIndex = 0;
+            int ch = reader.read();
+            if (ch == '\uFEFF') {
+                ch = reader.read();
+            }
+            
+            for (; ch != -1; ch = reader.read()) {
+                boolean keep = header || fieldIndex == column;
+                if (quoted) {
+                    if (ch != '"') {
+                        if (keep) {
+                            field.append((char) ch);
+                        }
+                        continue;
+                    }
+                    ch = reader.read();
+                    if (ch == '"') {
+                        if (keep) {
+                            field.append('"');  // "" inside quotes is a literal quote
+                        }
+                        continue;
+                    }
+                    quoted = false;
+                    if (ch == -1) {
+                        break;
+                    }
+                }
+                if (ch == '\n' && afterCarriageReturn) {
+                    afterCarriageReturn = false;
+                    continue;
+                }
+                afterCarriageReturn = ch == '\r';
+                
+                if (ch == '"' && fieldStart) {
+                    quoted = true;
+                    fieldStart = false;
+                } else if (ch == ',' || ch == '\n' || ch == '\r') {
+                    if (header) {
+                        if (field.toString().trim().equalsIgnoreCase(columnName)) {
+                            column = fieldIndex;
+                        }
+                    } else if (fieldIndex == column) {
+                        count += countInField(field, pattern);
+                    }
+                    field.setLength(0);
+                    fieldStart = true;
+                    fieldIndex++;
+                    if (ch != ',') {
+                        if (header && column < 0) {
+                            System.err.println("Column not found: " + columnName + " in " + fileName);
+                            return 0;
+                        }
+                        header = false;
+                        fieldIndex = 0;
+                    }
+                } else {
+                    fieldStart = false;
+                    if (keep) {
+                        field.append((char) ch);
+                    }
+                }
+            }
+            // Last record without a trailing line break
+            if (!header && fieldIndex == column) {
+                count += countInField(field, pattern);
+            }
+        } catch (Exception e) {
+            System.err.println("Error reading file: " + fileName);
+        }
+        
+        return count;
+    }
+    
+    private int countInField(StringBuilder field, String pattern) {
+        String text = field.toString().toLowerCase();
+        return boyerMooreSearch(text, pattern, 0, text.length(), wholeWord);
+    }
+    
+    /**
+     * Per-file counts of a word. Results are cached by normalized word (and whole-word mode) for the
+     * current corpus version, so repeating a query doesn't rescan the files. The map is read-only.
+     */
     public Map<String, Integer> countAcrossAllFiles(String word) {
+        String cacheKey = word.toLowerCase() + (wholeWord ? "\u0000whole" : "");
+        ResultCache<String, Map<String, Integer>> cache = resultCache;
+        if (cache != null) {
+            Map<String, Integer> cached = cache.get(corpusVersion, cacheKey);
+            if (cached != null) {
+                return cached;
+            }
+        }
+        
         Map<String, Integer> results = new LinkedHashMap<>();
         
         for (String fileName : fileContents.keySet()) {
@@ -101,6 +307,35 @@ public class Task3_FrequencyCount {
             results.put(fileName, count);
         }
         
+        results = Collections.unmodifiableMap(results);
+        if (cache != null) {
+            cache.put(corpusVersion, cacheKey, results);
+        }
+        return results;
+    }
+    
+    /**
+     * Counts several words with one Aho-Corasick pass per file instead of one Boyer-Moore pass
+     * per word and file. Returns word -> (file -> count), each inner map shaped like countAcrossAllFiles.
+     */
+    public Map<String, Map<String, Integer>> countWordsAcrossAllFiles(String... words) {
+        List<String> normalizedWords = new ArrayList<>();
+        for (String word : words) {
+            normalizedWords.add(word.toLowerCase());
+        }
+        AhoCorasick automaton = AhoCorasick.forPatterns(normalizedWords);
+        
+        Map<String, Map<String, Integer>> results = new LinkedHashMap<>();
+        for (String word : words) {
+            results.put(word, new LinkedHashMap<>());
+        }
+        for (Map.Entry<String, String> file : fileContents.entrySet()) {
+            int[] counts = automaton.count(file.getValue());
+            for (int i = 0; i < words.length; i++) {
+                results.get(words[i]).put(file.getKey(), counts[i]);
+            }
+        }
+        
         return results;
     }
     
@@ -143,10 +378,101 @@ public class Task3_FrequencyCount {
             frequencyCounter.displayFrequencyCount(word);
         }
         
+        System.out.println("\nResult cache: " + frequencyCounter.getCacheStatistics());
+        frequencyCounter.setCacheSize(0);  // the timings below measure the scans themselves
+        
         System.out.println("\n=== Algorithm Performance Test ===");
         long startTime = System.nanoTime();
         frequencyCounter.getTotalCount("rental");
         long endTime = System.nanoTime();
         System.out.println("Boyer-Moore search time: " + (endTime - startTime) / 1000 + " microseconds");
+        
+        System.out.println("\n=== Parallel Count ===");
+        int serialTotal = frequencyCounter.getTotalCount("rental");
+        for (int threads : new int[] {1, 2, 4, 8}) {
+            ForkJoinPool threadPool = new ForkJoinPool(threads);
+            frequencyCounter.setPool(threadPool);
+            startTime = System.nanoTime();
+            int parallelTotal = frequencyCounter.getTotalCount("rental");
+            endTime = System.nanoTime();
+            System.out.println(threads + " thread(s): " + parallelTotal + " occurrence(s)" + 
+                               (parallelTotal == serialTotal ? " (matches serial)" : " (MISMATCH)") + 
+                               " in " + (endTime - startTime) / 1000 + " microseconds");
+            threadPool.shutdown();
+        }
+        frequencyCounter.setPool(null);
+        
+        System.out.println("\n=== Memory-Mapped Byte Search ===");
+        Task3_FrequencyCount mappedCounter = new Task3_FrequencyCount();
+        mappedCounter.mapFiles(".");
+        for (ByteBoyerMoore.Variant variant : ByteBoyerMoore.Variant.values()) {
+            startTime = System.nanoTime();
+            int total = 0;
+            for (int count : mappedCounter.countAcrossMappedFiles("rental", variant).values()) {
+                total += count;
+            }
+            endTime = System.nanoTime();
+            System.out.println(variant + ": \"rental\" " + total + " occurrence(s) in " + (endTime - startTime) / 1000 + " microseconds");
+        }
+        
+        System.out.println("\n=== Multi-Word Count (Aho-Corasick) ===");
+        startTime = System.nanoTime();
+        for (String word : testWords) {
+            frequencyCounter.countAcrossAllFiles(word);
+        }
+        endTime = System.nanoTime();
+        System.out.println("Boyer-Moore, one pass per word: " + (endTime - startTime) / 1000 + " microseconds");
+        startTime = System.nanoTime();
+        Map<String, Map<String, Integer>> allCounts = frequencyCounter.countWordsAcrossAllFiles(testWords);
+        endTime = System.nanoTime();
+        System.out.println("Aho-Corasick, one pass for all " + testWords.length + " words: " + (endTime - startTime) / 1000 + " microseconds");
+        for (Map.Entry<String, Map<String, Integer>> entry : allCounts.entrySet()) {
+            int total = 0;
+            for (int count : entry.getValue().values()) {
+                total += count;
+            }
+            System.out.println("  " + entry.getKey() + ": " + total + " occurrence(s)");
+        }
+        
+        System.out.println("\n=== Whole-Word Count ===");
+        for (String word : new String[] {"car", "rental", "price"}) {
+            int substringTotal = frequencyCounter.getTotalCount(word);
+            frequencyCounter.setWholeWord(true);
+            int wholeWordTotal = frequencyCounter.getTotalCount(word);
+            frequencyCounter.setWholeWord(false);
+            System.out.println(word + ": " + substringTotal + " as substring, " + wholeWordTotal + " as whole word");
+        }
+        
+        System.out.println("\n=== Column-Scoped Count ===");
+        String[][] columnQueries = {
+            {"kayak_scraped_data.csv", "Car Name", "toyota"},
+            {"kayak_scraped_data.csv", "Page Title", "car"},
+            {"prabh.csv", "Car Name", "toyota"},
+            {"prabh.csv", "Location Name", "toronto"}
+        };
+        for (String[] query : columnQueries) {
+            startTime = System.nanoTime();
+            int columnCount = frequencyCounter.countInColumn(".", query[0], query[1], query[2]);
+            frequencyCounter.setWholeWord(true);
+            int wholeWordCount = frequencyCounter.countInColumn(".", query[0], query[1], query[2]);
+            frequencyCounter.setWholeWord(false);
+            endTime = System.nanoTime();
+            System.out.println(query[0] + " [" + query[1] + "] \"" + query[2] + "\": " + columnCount + " occurrence(s), " + 
+                               wholeWordCount + " as whole word (whole file: " + frequencyCounter.countInFile(query[0], query[2]) + ")");
+        }
+        
+        System.out.println("\n=== Result Cache ===");
+        frequencyCounter.setCacheSize(4);
+        String[] queryLog = {"car", "car", "rental", "car", "canada", "rental", "toronto", "price", "honda", "car", "rental", "budget"};
+        for (String word : queryLog) {
+            startTime = System.nanoTime();
+            int total = frequencyCounter.getTotalCount(word);
+            endTime = System.nanoTime();
+            System.out.println(word + ": " + total + " in " + (endTime - startTime) / 1000 + " microseconds");
+        }
+        System.out.println("Result cache: " + frequencyCounter.getCacheStatistics());
+        frequencyCounter.loadFiles(".");
+        frequencyCounter.getTotalCount("car");
+        System.out.println("After reloading the files: " + frequencyCounter.getCacheStatistics());
     }
 }
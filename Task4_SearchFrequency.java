@@ -1,32 +1,47 @@
 import java.util.*;
 import java.io.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * Task 4: Search Frequency Tracking Using KMP Algorithm
+ *
+ * search() may be called from many threads at once: frequencies are striped LongAdder counters in a
+ * ConcurrentHashMap and a result cache hit is a lock-free lookup, so concurrent searches never wait on
+ * a global lock (only a cache miss that has to evict takes the cache's eviction lock). Recent activity is kept in
+ * SearchWindows (last minute / hour / day) - fixed rings of time buckets instead of a record per search.
+ * With a top-K capacity the frequencies go to a fixed-size Space-Saving summary instead of the map,
+ * which bounds memory however many distinct queries arrive (counts become estimates with error bounds).
+ *
  * Assignment 3
  */
 public class Task4_SearchFrequency {
     
-    private Map<String, Integer> searchFrequency;
+    private ConcurrentMap<String, LongAdder> searchFrequency;
     private Map<String, String> fileContents;
-    private List<SearchRecord> searchHistory;
-    
-    class SearchRecord {
-        String word;
-        long timestamp;
-        int occurrences;
-        
-        SearchRecord(String word, long timestamp, int occurrences) {
-            this.word = word;
-            this.timestamp = timestamp;
-            this.occurrences = occurrences;
-        }
-    }
+    private SearchWindows searchWindows;
+    private LongAdder totalSearches;
+    private SearchLog searchLog;
+    private volatile long corpusVersion;
+    private volatile ResultCache<String, Integer> resultCache;
+    private SpaceSaving heavyHitters;
+    private ForkJoinPool pool;
     
     public Task4_SearchFrequency() {
-        searchFrequency = new HashMap<>();
+        searchFrequency = new ConcurrentHashMap<>();
         fileContents = new HashMap<>();
-        searchHistory = new ArrayList<>();
+        searchWindows = new SearchWindows();
+        totalSearches = new LongAdder();
+        resultCache = new ResultCache<>(Task3_FrequencyCount.DEFAULT_CACHE_SIZE);
+    }
+    
+    /**
+     * Bounded-memory mode: at most topKCapacity words are tracked. Any word searched more than
+     * (total searches / topKCapacity) times is guaranteed to be among them.
+     */
+    public Task4_SearchFrequency(int topKCapacity) {
+        this();
+        heavyHitters = new SpaceSaving(topKCapacity);
     }
     
     public void loadFiles(String basePath) {
@@ -34,17 +49,26 @@ public class Task4_SearchFrequency {
         
         for (String fileName : csvFiles) {
             String filePath = basePath + "/" + fileName;
-            StringBuilder content = new StringBuilder();
             
-            try (Scanner scanner = new Scanner(new File(filePath))) {
-                while (scanner.hasNextLine()) {
-                    content.append(scanner.nextLine().toLowerCase()).append(" ");
-                }
-                fileContents.put(fileName, content.toString());
+            try {
+                fileContents.put(fileName, CsvTokenizer.readContent(new File(filePath)));
             } catch (Exception e) {
                 System.err.println("Error reading file: " + fileName);
             }
         }
+        corpusVersion++;  // cached occurrence counts of the previous contents no longer apply
+    }
+    
+    /**
+     * Size limit of the occurrence-count cache used by search (entries); 0 turns caching off.
+     */
+    public void setCacheSize(int entries) {
+        resultCache = entries > 0 ? new ResultCache<>(entries) : null;
+    }
+    
+    public String getCacheStatistics() {
+        ResultCache<String, Integer> cache = resultCache;
+        return cache == null ? "disabled" : cache.toString();
     }
     
     private int[] computeLPSArray(String pattern) {
@@ -74,14 +98,22 @@ public class Task4_SearchFrequency {
     }
     
     public int kmpSearch(String text, String pattern) {
-        int n = text.length();
+        return kmpSearch(text, pattern, 0, text.length());
+    }
+    
+    /**
+     * Counts the matches that start in [from, to), reading the text only up to to + m - 1 (or its
+     * end) so a match starting just before "to" still completes. Nothing is copied.
+     */
+    private int kmpSearch(String text, String pattern, int from, int to) {
         int m = pattern.length();
+        int n = (int) Math.min(text.length(), (long) to + m - 1);
         int count = 0;
         
-        if (m == 0 || n == 0 || m > n) return 0;
+        if (m == 0 || n - from < m) return 0;
         
         int[] lps = computeLPSArray(pattern);
-        int i = 0, j = 0;
+        int i = from, j = 0;
         
         while (i < n) {
             if (pattern.charAt(j) == text.charAt(i)) {
@@ -106,31 +138,162 @@ public class Task4_SearchFrequency {
     
     public int search(String word) {
         String normalizedWord = word.toLowerCase();
-        searchFrequency.put(normalizedWord, searchFrequency.getOrDefault(normalizedWord, 0) + 1);
+        if (heavyHitters != null) {
+            heavyHitters.offer(normalizedWord);
+        } else {
+            searchFrequency.computeIfAbsent(normalizedWord, key -> new LongAdder()).increment();
+        }
         
+        // A repeated word is answered from the cache instead of rescanning every file
+        ResultCache<String, Integer> cache = resultCache;
+        long version = corpusVersion;
+        Integer cached = cache == null ? null : cache.get(version, normalizedWord);
         int totalOccurrences = 0;
-        for (String content : fileContents.values()) {
-            totalOccurrences += kmpSearch(content, normalizedWord);
+        if (cached != null) {
+            totalOccurrences = cached;
+        } else {
+            for (String content : fileContents.values()) {
+                totalOccurrences += kmpCount(content, normalizedWord);
+            }
+            if (cache != null) {
+                cache.put(version, normalizedWord, totalOccurrences);
+            }
         }
         
-        searchHistory.add(new SearchRecord(normalizedWord, System.currentTimeMillis(), totalOccurrences));
+        long timeMillis = System.currentTimeMillis();
+        searchWindows.record(normalizedWord, timeMillis);
+        totalSearches.increment();
+        if (searchLog != null) {
+            searchLog.append(normalizedWord, timeMillis);  // queued only, written by the log's own thread
+        }
         return totalOccurrences;
     }
     
+    /**
+     * Persistence: restores the frequencies saved in the directory (snapshot + newer log) and from
+     * then on logs every search there. The time windows get back the searches replayed from the log.
+     * Not available in bounded top-K mode, whose summary can't be rebuilt from saved counts.
+     * Fails with an IOException if another tracker's log is still using the directory.
+     */
+    public SearchLog.Recovery enablePersistence(File directory, int snapshotInterval) throws IOException {
+        if (heavyHitters != null) {
+            throw new IllegalStateException("Persistence keeps exact counts; not available in bounded top-K mode");
+        }
+        SearchLog log = new SearchLog(directory, snapshotInterval);
+        SearchLog.Recovery recovery = log.recover(new SearchLog.RecoveryListener() {
+            @Override
+            public void restoreCount(String word, long count) {
+                searchFrequency.computeIfAbsent(word, key -> new LongAdder()).add(count);
+                totalSearches.add(count);
+            }
+            
+            @Override
+            public void replay(String word, long timeMillis) {
+                searchFrequency.computeIfAbsent(word, key -> new LongAdder()).increment();
+                searchWindows.record(word, timeMillis);
+                totalSearches.increment();
+            }
+        });
+        searchLog = log;
+        return recovery;
+    }
+    
+    /**
+     * Writes the searches still queued, snapshots the counts and stops logging.
+     */
+    public void closePersistence() throws IOException {
+        if (searchLog != null) {
+            searchLog.close();
+            searchLog = null;
+        }
+    }
+    
+    /**
+     * Parallel count mode: with a pool set, searches split every file into chunks counted on it
+     * (null, the default, counts serially). The counts are the same either way.
+     */
+    public void setPool(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+    
+    /**
+     * kmpSearch, or in parallel mode the sum of kmpSearch over chunks of the file, each counting in
+     * place only the matches that start inside it.
+     */
+    private int kmpCount(String content, String pattern) {
+        int m = pattern.length();
+        if (pool == null || m == 0) {
+            return kmpSearch(content, pattern);
+        }
+        return (int) ParallelMatchCounter.count(pool, content.length(), (from, to) -> kmpSearch(content, pattern, from, to));
+    }
+    
+    /**
+     * Exact frequency, or in bounded mode an upper bound (see getSearchFrequencyError).
+     */
     public int getSearchFrequency(String word) {
-        return searchFrequency.getOrDefault(word.toLowerCase(), 0);
+        if (heavyHitters != null) {
+            return (int) heavyHitters.estimate(word.toLowerCase());
+        }
+        LongAdder frequency = searchFrequency.get(word.toLowerCase());
+        return frequency == null ? 0 : frequency.intValue();
+    }
+    
+    /**
+     * How far getSearchFrequency may overestimate: 0 in the exact mode; in bounded mode the
+     * true frequency lies in [frequency - error, frequency].
+     */
+    public int getSearchFrequencyError(String word) {
+        return heavyHitters == null ? 0 : (int) heavyHitters.error(word.toLowerCase());
     }
     
+    /**
+     * Most searched words with their frequencies as read at the time of the call (searches
+     * running concurrently may or may not be included). In bounded mode this walks the top of
+     * the Space-Saving summary in O(n) and the frequencies are upper bounds.
+     */
     public List<Map.Entry<String, Integer>> getTopSearches(int n) {
-        List<Map.Entry<String, Integer>> sortedEntries = new ArrayList<>(searchFrequency.entrySet());
+        if (heavyHitters != null) {
+            List<Map.Entry<String, Integer>> top = new ArrayList<>();
+            for (SpaceSaving.Estimate estimate : heavyHitters.top(n)) {
+                top.add(new AbstractMap.SimpleImmutableEntry<>(estimate.item, (int) estimate.count));
+            }
+            return top;
+        }
+        List<Map.Entry<String, Integer>> sortedEntries = new ArrayList<>();
+        for (Map.Entry<String, LongAdder> entry : searchFrequency.entrySet()) {
+            sortedEntries.add(new AbstractMap.SimpleImmutableEntry<>(entry.getKey(), entry.getValue().intValue()));
+        }
         sortedEntries.sort((a, b) -> b.getValue().compareTo(a.getValue()));
         return sortedEntries.subList(0, Math.min(n, sortedEntries.size()));
     }
     
+    public long getTotalSearches() {
+        return totalSearches.sum();
+    }
+    
+    /**
+     * Searches made in the last minute, hour or day (window start accurate to one bucket).
+     */
+    public long getSearchCount(SearchWindows.Window window) {
+        return searchWindows.count(window, System.currentTimeMillis());
+    }
+    
+    /**
+     * Most searched words in the last minute, hour or day, from the window's time buckets.
+     */
+    public List<Map.Entry<String, Integer>> getTopSearches(SearchWindows.Window window, int n) {
+        return searchWindows.top(window, n, System.currentTimeMillis());
+    }
+    
     public void displayStatistics() {
         System.out.println("\n=== Search Frequency Statistics ===");
-        System.out.println("Total unique searches: " + searchFrequency.size());
-        System.out.println("Total search operations: " + searchHistory.size());
+        if (heavyHitters != null) {
+            System.out.println("Tracked searches: " + heavyHitters.size() + " of at most " + heavyHitters.capacity());
+        } else {
+            System.out.println("Total unique searches: " + searchFrequency.size());
+        }
+        System.out.println("Total search operations: " + getTotalSearches());
         
         System.out.println("\nTop 10 Most Searched Words:");
         List<Map.Entry<String, Integer>> topSearches = getTopSearches(10);
@@ -166,11 +329,169 @@ public class Task4_SearchFrequency {
         }
         
         tracker.displayStatistics();
+        System.out.println("Result cache: " + tracker.getCacheStatistics());
         
         System.out.println("\n=== Algorithm Performance Test ===");
         long startTime = System.nanoTime();
         tracker.kmpSearch(tracker.fileContents.values().iterator().next(), "rental");
         long endTime = System.nanoTime();
         System.out.println("KMP search time: " + (endTime - startTime) / 1000 + " microseconds");
+        
+        System.out.println("\n=== Parallel Search ===");
+        Task4_SearchFrequency parallelTracker = new Task4_SearchFrequency();
+        parallelTracker.loadFiles(".");
+        parallelTracker.setCacheSize(0);  // every search below has to scan
+        int serialOccurrences = parallelTracker.search("rental");
+        for (int threads : new int[] {1, 2, 4, 8}) {
+            ForkJoinPool threadPool = new ForkJoinPool(threads);
+            parallelTracker.setPool(threadPool);
+            startTime = System.nanoTime();
+            int occurrences = parallelTracker.search("rental");
+            endTime = System.nanoTime();
+            System.out.println(threads + " thread(s): " + occurrences + " occurrence(s)" + 
+                               (occurrences == serialOccurrences ? " (matches serial)" : " (MISMATCH)") + 
+                               " in " + (endTime - startTime) / 1000 + " microseconds");
+            threadPool.shutdown();
+        }
+        
+        System.out.println("\n=== Concurrent Tracking Throughput ===");
+        String[] requestWords = {"car", "rental", "budget", "canada", "toronto", "price", "location", "honda"};
+        int searchesPerThread = 100000;
+        for (int threads : new int[] {1, 8, 32}) {
+            // No files loaded: every search is frequency + history tracking and a lookup in the default result cache
+            Task4_SearchFrequency concurrentTracker = new Task4_SearchFrequency();
+            ExecutorService executor = Executors.newFixedThreadPool(threads);
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<?>> workers = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int offset = t;
+                workers.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < searchesPerThread; i++) {
+                        concurrentTracker.search(requestWords[(i + offset) % requestWords.length]);
+                    }
+                    return null;
+                }));
+            }
+            startTime = System.nanoTime();
+            start.countDown();
+            try {
+                for (Future<?> worker : workers) {
+                    worker.get();
+                }
+            } catch (Exception e) {
+                System.err.println("Search thread failed: " + e);
+            }
+            endTime = System.nanoTime();
+            executor.shutdown();
+            
+            long expected = (long) threads * searchesPerThread;
+            long counted = 0;
+            for (String word : requestWords) {
+                counted += concurrentTracker.getSearchFrequency(word);
+            }
+            boolean consistent = counted == expected && concurrentTracker.getTotalSearches() == expected;
+            System.out.println(threads + " thread(s): " + expected + " searches in " + (endTime - startTime) / 1_000_000 + " ms (" + 
+                               expected * 1_000_000_000L / Math.max(1, endTime - startTime) + " searches/s)" + 
+                               (consistent ? " (no lost updates)" : " (LOST UPDATES)"));
+        }
+        
+        System.out.println("\n=== Bounded Top-K (Space-Saving) ===");
+        // Skewed query log: the request words plus a long tail of distinct one-off queries
+        Task4_SearchFrequency exactTracker = new Task4_SearchFrequency();
+        Task4_SearchFrequency boundedTracker = new Task4_SearchFrequency(64);
+        Random random = new Random(42);
+        int logSize = 300000;
+        for (int i = 0; i < logSize; i++) {
+            String query = random.nextInt(3) == 0 ? "query " + random.nextInt(1000000)
+                : requestWords[Math.min(requestWords.length - 1, (int) -Math.round(Math.log(random.nextDouble()) * 2))];
+            exactTracker.search(query);
+            boundedTracker.search(query);
+        }
+        exactTracker.getTopSearches(5);  // warm-up
+        boundedTracker.getTopSearches(5);
+        startTime = System.nanoTime();
+        List<Map.Entry<String, Integer>> exactTop = exactTracker.getTopSearches(5);
+        long exactTime = System.nanoTime() - startTime;
+        startTime = System.nanoTime();
+        List<Map.Entry<String, Integer>> boundedTop = boundedTracker.getTopSearches(5);
+        long boundedTime = System.nanoTime() - startTime;
+        System.out.println("Exact: " + exactTracker.searchFrequency.size() + " distinct queries tracked, top 5 in " + exactTime / 1000 + " microseconds");
+        System.out.println("Space-Saving: " + boundedTracker.heavyHitters.size() + " counters, top 5 in " + boundedTime / 1000 + " microseconds");
+        for (int i = 0; i < boundedTop.size(); i++) {
+            String word = boundedTop.get(i).getKey();
+            int estimate = boundedTop.get(i).getValue();
+            int error = boundedTracker.getSearchFrequencyError(word);
+            System.out.println((i + 1) + ". \"" + word + "\" - estimated " + estimate + " (true count in [" + (estimate - error) + ", " + 
+                               estimate + "]), exact " + exactTracker.getSearchFrequency(word) + 
+                               (i < exactTop.size() && exactTop.get(i).getKey().equals(word) ? "" : " (rank differs)"));
+        }
+        
+        System.out.println("\n=== Search Windows ===");
+        for (SearchWindows.Window window : SearchWindows.Window.values()) {
+            System.out.println(window + ": " + tracker.getSearchCount(window) + " search(es), top 3: " + tracker.getTopSearches(window, 3));
+        }
+        // Sustained load on simulated time: 26 hours at 20 searches per second
+        SearchWindows windows = new SearchWindows();
+        long simulatedStart = 1_699_999_200_000L;  // on an hour boundary, so every window below is full
+        long simulatedEnd = simulatedStart + 26L * 60 * 60 * 1000;
+        long recorded = 0;
+        startTime = System.nanoTime();
+        for (long time = simulatedStart; time < simulatedEnd; time += 50) {
+            windows.record(requestWords[(int) (recorded++ % requestWords.length)], time);
+        }
+        endTime = System.nanoTime();
+        System.out.println("Simulated " + recorded + " searches in " + (endTime - startTime) / 1_000_000 + " ms");
+        for (SearchWindows.Window window : SearchWindows.Window.values()) {
+            startTime = System.nanoTime();
+            long count = windows.count(window, simulatedEnd - 1);
+            List<Map.Entry<String, Integer>> windowTop = windows.top(window, 3, simulatedEnd - 1);
+            endTime = System.nanoTime();
+            System.out.println(window + ": " + count + " search(es), top 3: " + windowTop + " in " + (endTime - startTime) / 1000 + " microseconds");
+        }
+        
+        System.out.println("\n=== Persistent Search Log ===");
+        File logDirectory = new File(System.getProperty("java.io.tmpdir"), "task4_search_log");
+        for (File old : logDirectory.listFiles() == null ? new File[0] : logDirectory.listFiles()) {
+            old.delete();
+        }
+        int loggedSearches = 300000;
+        try {
+            Task4_SearchFrequency loggingTracker = new Task4_SearchFrequency();
+            System.out.println("Fresh start: " + loggingTracker.enablePersistence(logDirectory, 100000));
+            startTime = System.nanoTime();
+            for (int i = 0; i < loggedSearches; i++) {
+                loggingTracker.search(requestWords[i % requestWords.length]);
+            }
+            endTime = System.nanoTime();
+            System.out.println(loggedSearches + " logged searches in " + (endTime - startTime) / 1_000_000 + " ms (search() only queues)");
+            startTime = System.nanoTime();
+            loggingTracker.searchLog.flush();
+            endTime = System.nanoTime();
+            System.out.println("Waited " + (endTime - startTime) / 1_000_000 + " ms for the remaining group commits");
+            System.out.println("Dropped by a full log queue: " + loggingTracker.searchLog.droppedSearches());
+            
+            // Simulated crash: the first tracker's log is abandoned (writer stopped, no final snapshot,
+            // directory lock released), so recovery reads the last periodic snapshot and replays the log after it
+            loggingTracker.searchLog.abandon();
+            Task4_SearchFrequency restartedTracker = new Task4_SearchFrequency();
+            System.out.println("After crash: " + restartedTracker.enablePersistence(logDirectory, 100000));
+            try {
+                new Task4_SearchFrequency().enablePersistence(logDirectory, 100000);
+                System.out.println("Second tracker on the same directory: opened (NOT LOCKED)");
+            } catch (IOException e) {
+                System.out.println("Second tracker on the same directory: " + e.getMessage());
+            }
+            System.out.println("\"car\" frequency: " + loggingTracker.getSearchFrequency("car") + " before, " + 
+                               restartedTracker.getSearchFrequency("car") + " after recovery");
+            
+            // Clean shutdown writes a final snapshot: the next start has no log to replay
+            restartedTracker.closePersistence();
+            Task4_SearchFrequency cleanTracker = new Task4_SearchFrequency();
+            System.out.println("After clean shutdown: " + cleanTracker.enablePersistence(logDirectory, 100000));
+            cleanTracker.closePersistence();
+        } catch (IOException e) {
+            System.err.println("Error writing search log: " + e.getMessage());
+        }
     }
 }
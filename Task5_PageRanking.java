@@ -1,5 +1,11 @@
 import java.util.*;
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 /**
  * Task 5: Page Ranking Using Frequency Count and Boyer-Moore Algorithm
@@ -7,11 +13,22 @@ import java.io.*;
  */
 public class Task5_PageRanking {
     
-    private Map<String, String> pages;
+    private static final String[] CSV_FILES = {"swiftride_data 2.csv", "prabh.csv", "kayak_scraped_data.csv", "nikhil.csv", "happy.csv"};
+    private static final int CHUNK_SIZE = 1 << 16;  // characters per scoring task in rankPagesConcurrently
+    
+    // Copy-on-write: never modified once published, so a ranking that reads it once sees one consistent set of pages
+    private volatile Map<String, String> pages;
+    private Map<String, ByteBuffer> mappedPages;
+    private ByteBoyerMoore.Variant mappedVariant = ByteBoyerMoore.Variant.GOOD_SUFFIX;
+    private Bm25Index index;
+    // Page updates hold the write lock while they change pages and index together; indexed rankings the read lock
+    private final ReentrantReadWriteLock updateLock = new ReentrantReadWriteLock();
+    private ForkJoinPool pool;
     
     class PageScore implements Comparable<PageScore> {
         String pageName;
         int score;
+        double relevance;  // BM25 / TF-IDF score of the indexed ranking, 0 otherwise
         Map<String, Integer> keywordCounts;
         
         PageScore(String pageName, int score) {
@@ -26,26 +43,130 @@ public class Task5_PageRanking {
         }
     }
     
+    /**
+     * Top-k rankings of a concurrent query. When the deadline passed first, partial is set and
+     * rankings only cover the pages scored by then.
+     */
+    class RankingResult {
+        List<PageScore> rankings;
+        boolean partial;
+        int pagesScored;
+        int pagesTotal;
+    }
+    
     public Task5_PageRanking() {
-        pages = new LinkedHashMap<>();
+        pages = Collections.emptyMap();
+        mappedPages = new LinkedHashMap<>();
     }
     
     public void loadPages(String basePath) {
-        String[] csvFiles = {"swiftride_data 2.csv", "prabh.csv", "kayak_scraped_data.csv", "nikhil.csv", "happy.csv"};
-        
-        for (String fileName : csvFiles) {
+        Map<String, String> loaded = new LinkedHashMap<>();
+        for (String fileName : CSV_FILES) {
             String filePath = basePath + "/" + fileName;
-            StringBuilder content = new StringBuilder();
             
-            try (Scanner scanner = new Scanner(new File(filePath))) {
-                while (scanner.hasNextLine()) {
-                    content.append(scanner.nextLine().toLowerCase()).append(" ");
-                }
-                pages.put(fileName, content.toString());
+            try {
+                loaded.put(fileName, CsvTokenizer.readContent(new File(filePath)));
             } catch (Exception e) {
                 System.err.println("Error reading file: " + fileName);
             }
         }
+        putPages(loaded);
+    }
+    
+    /**
+     * Adds a page (content is normalized like loaded CSV files); false if the name is already taken.
+     */
+    public boolean addPage(String pageName, String content) {
+        return putPage(pageName, CsvTokenizer.normalizeContent(content), true, false);
+    }
+    
+    /**
+     * Replaces the content of a page; false if there is no such page.
+     */
+    public boolean updatePage(String pageName, String content) {
+        return putPage(pageName, CsvTokenizer.normalizeContent(content), false, true);
+    }
+    
+    /**
+     * Rereads one CSV file (e.g. after a re-scrape), adding or replacing its page.
+     */
+    public void reloadPage(String basePath, String fileName) {
+        try {
+            putPage(fileName, CsvTokenizer.readContent(new File(basePath, fileName)), true, true);
+        } catch (IOException e) {
+            System.err.println("Error reading file: " + fileName);
+        }
+    }
+    
+    /**
+     * Removes a page; false if there is no such page.
+     */
+    public boolean removePage(String pageName) {
+        updateLock.writeLock().lock();
+        try {
+            if (!pages.containsKey(pageName)) {
+                return false;
+            }
+            Map<String, String> updated = new LinkedHashMap<>(pages);
+            updated.remove(pageName);
+            if (index != null) {
+                index.removeDocument(pageName);
+            }
+            pages = Collections.unmodifiableMap(updated);
+            return true;
+        } finally {
+            updateLock.writeLock().unlock();
+        }
+    }
+    
+    /**
+     * Publishes a new page map with this page and updates the index (if built) for this page only.
+     * The map copy shares all page contents but still costs one entry per page, so a single update
+     * is O(pages): cheap for the few large CSV pages here, and what lets rankings read the pages
+     * without a lock. Many pages at once go through putPages, which copies the map once.
+     */
+    private boolean putPage(String pageName, String content, boolean mayAdd, boolean mayReplace) {
+        updateLock.writeLock().lock();
+        try {
+            boolean exists = pages.containsKey(pageName);
+            if (exists ? !mayReplace : !mayAdd) {
+                return false;
+            }
+            Map<String, String> updated = new LinkedHashMap<>(pages);
+            updated.put(pageName, content);
+            if (index != null) {
+                index.removeDocument(pageName);
+                index.addDocument(pageName, content);
+            }
+            pages = Collections.unmodifiableMap(updated);
+            return true;
+        } finally {
+            updateLock.writeLock().unlock();
+        }
+    }
+    
+    /**
+     * Adds or replaces all the given pages with a single copy of the page map, so loading P pages
+     * is O(P) rather than a copy per page.
+     */
+    private void putPages(Map<String, String> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        updateLock.writeLock().lock();
+        try {
+            Map<String, String> updated = new LinkedHashMap<>(pages);
+            for (Map.Entry<String, String> page : batch.entrySet()) {
+                updated.put(page.getKey(), page.getValue());
+                if (index != null) {
+                    index.removeDocument(page.getKey());
+                    index.addDocument(page.getKey(), page.getValue());
+                }
+            }
+            pages = Collections.unmodifiableMap(updated);
+        } finally {
+            updateLock.writeLock().unlock();
+        }
     }
     
     private int[] buildBadCharTable(String pattern) {
@@ -86,21 +207,31 @@ public class Task5_PageRanking {
         return count;
     }
     
+    /**
+     * Scores every page by its keyword occurrences. All keywords are counted in a single
+     * Aho-Corasick pass per page (the automaton is cached per keyword list).
+     */
     public List<PageScore> rankPages(String... keywords) {
         List<PageScore> rankings = new ArrayList<>();
         
-        for (Map.Entry<String, String> page : pages.entrySet()) {
+        List<String> normalizedKeywords = new ArrayList<>();
+        for (String keyword : keywords) {
+            normalizedKeywords.add(keyword.toLowerCase());
+        }
+        AhoCorasick automaton = AhoCorasick.forPatterns(normalizedKeywords);
+        
+        for (Map.Entry<String, String> page : pages.entrySet()) {  // one snapshot, even while pages are updated
             String pageName = page.getKey();
             String content = page.getValue();
             int totalScore = 0;
             
             PageScore pageScore = new PageScore(pageName, 0);
+            int[] counts = automaton.count(content);
             
-            for (String keyword : keywords) {
-                String normalizedKeyword = keyword.toLowerCase();
-                int count = boyerMooreSearch(content, normalizedKeyword);
+            for (int i = 0; i < keywords.length; i++) {
+                int count = counts[i];
                 totalScore += count;
-                pageScore.keywordCounts.put(keyword, count);
+                pageScore.keywordCounts.put(keywords[i], count);
             }
             
             pageScore.score = totalScore;
@@ -111,6 +242,209 @@ public class Task5_PageRanking {
         return rankings;
     }
     
+    /**
+     * Pool for rankPagesConcurrently; null uses the common pool.
+     */
+    public void setPool(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+    
+    /**
+     * Like rankPages, but pages are split into chunks of CHUNK_SIZE characters scored in parallel on
+     * the pool, so one large page doesn't hold up the rest, and only the k best pages are kept in a
+     * min-heap as pages complete. Once timeoutMillis has passed, the pages scored so far are returned
+     * flagged as partial, and chunks that haven't started yet are skipped.
+     */
+    public RankingResult rankPagesConcurrently(int k, long timeoutMillis, String... keywords) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        List<String> normalizedKeywords = new ArrayList<>();
+        for (String keyword : keywords) {
+            normalizedKeywords.add(keyword.toLowerCase());
+        }
+        AhoCorasick automaton = AhoCorasick.forPatterns(normalizedKeywords);
+        ForkJoinPool executor = pool != null ? pool : ForkJoinPool.commonPool();
+        Map<String, String> snapshot = pages;
+        
+        // Worst first: lower score, then later in page order (rankPages keeps page order on ties)
+        Map<PageScore, Integer> pageOrder = new IdentityHashMap<>();
+        Comparator<PageScore> worstFirst = (a, b) -> a.score != b.score ? Integer.compare(a.score, b.score)
+                                                                        : Integer.compare(pageOrder.get(b), pageOrder.get(a));
+        PriorityQueue<PageScore> heap = new PriorityQueue<>(Math.max(1, Math.min(k, snapshot.size())), worstFirst);
+        RankingResult result = new RankingResult();
+        result.pagesTotal = snapshot.size();
+        boolean[] closed = new boolean[1];  // guarded by heap: set once the result is handed out
+        CountDownLatch pagesLeft = new CountDownLatch(snapshot.size());
+        
+        List<PageScore> pageScores = new ArrayList<>();
+        for (String pageName : snapshot.keySet()) {
+            PageScore pageScore = new PageScore(pageName, 0);
+            pageOrder.put(pageScore, pageScores.size());
+            pageScores.add(pageScore);
+        }
+        for (PageScore pageScore : pageScores) {
+            String content = snapshot.get(pageScore.pageName);
+            int chunks = Math.max(1, (content.length() + CHUNK_SIZE - 1) / CHUNK_SIZE);
+            int[] counts = new int[keywords.length];
+            AtomicInteger chunksLeft = new AtomicInteger(chunks);
+            
+            for (int chunk = 0; chunk < chunks; chunk++) {
+                int from = chunk * CHUNK_SIZE;
+                int to = Math.min(content.length(), from + CHUNK_SIZE);
+                executor.execute(() -> {
+                    if (System.nanoTime() - deadline > 0) {
+                        return;  // too late: the page stays unscored
+                    }
+                    int[] chunkCounts = automaton.count(content, from, to);
+                    synchronized (counts) {
+                        for (int i = 0; i < counts.length; i++) {
+                            counts[i] += chunkCounts[i];
+                        }
+                    }
+                    if (chunksLeft.decrementAndGet() > 0) {
+                        return;
+                    }
+                    for (int i = 0; i < keywords.length; i++) {
+                        pageScore.score += counts[i];
+                        pageScore.keywordCounts.put(keywords[i], counts[i]);
+                    }
+                    synchronized (heap) {
+                        if (!closed[0]) {
+                            result.pagesScored++;
+                            heap.add(pageScore);
+                            if (heap.size() > Math.max(0, k)) {
+                                heap.poll();
+                            }
+                        }
+                    }
+                    pagesLeft.countDown();
+                });
+            }
+        }
+        
+        try {
+            pagesLeft.await(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (heap) {
+            closed[0] = true;
+            result.partial = result.pagesScored < result.pagesTotal;
+            result.rankings = new ArrayList<>(heap);
+        }
+        result.rankings.sort(Collections.reverseOrder(worstFirst));
+        return result;
+    }
+    
+    /**
+     * Builds the term index (postings with term frequencies, page lengths) over the loaded pages.
+     */
+    public void buildIndex() {
+        updateLock.writeLock().lock();
+        try {
+            Bm25Index built = new Bm25Index();
+            for (Map.Entry<String, String> page : pages.entrySet()) {
+                built.addDocument(page.getKey(), page.getValue());
+            }
+            index = built;
+        } finally {
+            updateLock.writeLock().unlock();
+        }
+    }
+    
+    /**
+     * Top k pages by BM25 or TF-IDF relevance, found through the index with MaxScore pruning
+     * instead of rescanning the pages. keywordCounts holds each keyword's term frequency in the
+     * page (whole words, unlike the substring counts of rankPages) and score their sum.
+     */
+    public List<PageScore> rankPagesIndexed(int k, Bm25Index.Scoring scoring, String... keywords) {
+        updateLock.readLock().lock();
+        try {
+            if (index != null) {
+                return rankIndexed(k, scoring, keywords);
+            }
+        } finally {
+            updateLock.readLock().unlock();
+        }
+        buildIndex();
+        return rankPagesIndexed(k, scoring, keywords);
+    }
+    
+    // Caller holds the read lock
+    private List<PageScore> rankIndexed(int k, Bm25Index.Scoring scoring, String... keywords) {
+        List<String> queryTerms = new ArrayList<>();
+        List<Integer> keywordOfTerm = new ArrayList<>();
+        for (int i = 0; i < keywords.length; i++) {
+            for (String term : CsvTokenizer.tokens(keywords[i])) {
+                queryTerms.add(term);
+                keywordOfTerm.add(i);
+            }
+        }
+        
+        List<PageScore> rankings = new ArrayList<>();
+        for (Bm25Index.Hit hit : index.search(queryTerms, k, scoring)) {
+            PageScore pageScore = new PageScore(index.documentName(hit.document), 0);
+            pageScore.relevance = hit.score;
+            for (String keyword : keywords) {
+                pageScore.keywordCounts.put(keyword, 0);
+            }
+            for (int t = 0; t < queryTerms.size(); t++) {
+                pageScore.keywordCounts.merge(keywords[keywordOfTerm.get(t)], hit.termFrequencies[t], Integer::sum);
+                pageScore.score += hit.termFrequencies[t];
+            }
+            rankings.add(pageScore);
+        }
+        return rankings;
+    }
+    
+    /**
+     * Maps the pages read-only instead of loading them as lowercased Strings.
+     */
+    public void mapPages(String basePath) {
+        for (String fileName : CSV_FILES) {
+            try {
+                mappedPages.put(fileName, ByteBoyerMoore.map(new File(basePath, fileName)));
+            } catch (IOException e) {
+                System.err.println("Error reading file: " + fileName);
+            }
+        }
+    }
+    
+    /**
+     * Byte search used by rankMappedPages: GOOD_SUFFIX by default, SWAR for the
+     * first/last-byte kernel. Every variant gives the same counts.
+     */
+    public void setMappedVariant(ByteBoyerMoore.Variant variant) {
+        this.mappedVariant = variant;
+    }
+    
+    /**
+     * Same ranking as rankPages over the mapped pages, counting each keyword with the
+     * byte-level search (ASCII case folding).
+     */
+    public List<PageScore> rankMappedPages(String... keywords) {
+        List<PageScore> rankings = new ArrayList<>();
+        
+        List<ByteBoyerMoore> matchers = new ArrayList<>();
+        for (String keyword : keywords) {
+            matchers.add(new ByteBoyerMoore(keyword, mappedVariant));
+        }
+        
+        for (Map.Entry<String, ByteBuffer> page : mappedPages.entrySet()) {
+            PageScore pageScore = new PageScore(page.getKey(), 0);
+            
+            for (int i = 0; i < keywords.length; i++) {
+                int count = (int) matchers.get(i).count(page.getValue().duplicate());
+                pageScore.score += count;
+                pageScore.keywordCounts.put(keywords[i], count);
+            }
+            
+            rankings.add(pageScore);
+        }
+        
+        Collections.sort(rankings);
+        return rankings;
+    }
+    
     public void displayRankings(String... keywords) {
         System.out.println("\n=== Page Ranking Results ===");
         System.out.print("Keywords: ");
@@ -137,10 +471,11 @@ public class Task5_PageRanking {
     
     public void displayStatistics() {
         System.out.println("\n=== Page Ranking Statistics ===");
-        System.out.println("Total pages indexed: " + pages.size());
+        Map<String, String> snapshot = pages;
+        System.out.println("Total pages indexed: " + snapshot.size());
         
         int totalContent = 0;
-        for (String content : pages.values()) {
+        for (String content : snapshot.values()) {
             totalContent += content.length();
         }
         System.out.println("Total content size: " + totalContent + " characters");
@@ -169,5 +504,205 @@ public class Task5_PageRanking {
         
         System.out.println("\n=== Test 5: Complex Query ===");
         pageRanking.displayRankings("car", "rental", "price", "location");
+        
+        System.out.println("\n=== Memory-Mapped Pages ===");
+        Task5_PageRanking mappedRanking = new Task5_PageRanking();
+        mappedRanking.mapPages(".");
+        for (PageScore pageScore : mappedRanking.rankMappedPages("car", "rental", "price", "location")) {
+            System.out.println(pageScore.pageName + ": " + pageScore.score);
+        }
+        for (ByteBoyerMoore.Variant variant : ByteBoyerMoore.Variant.values()) {
+            mappedRanking.setMappedVariant(variant);
+            long startTime = System.nanoTime();
+            List<PageScore> rankings = mappedRanking.rankMappedPages("car", "rental", "price", "location");
+            long endTime = System.nanoTime();
+            int total = 0;
+            for (PageScore pageScore : rankings) {
+                total += pageScore.score;
+            }
+            System.out.println(variant + ": total score " + total + " in " + (endTime - startTime) / 1000 + " microseconds");
+        }
+        
+        System.out.println("\n=== Indexed Ranking (BM25 / TF-IDF) ===");
+        pageRanking.buildIndex();
+        for (Bm25Index.Scoring scoring : Bm25Index.Scoring.values()) {
+            System.out.println(scoring + ":");
+            for (PageScore pageScore : pageRanking.rankPagesIndexed(3, scoring, "car", "rental", "price", "location")) {
+                System.out.println(String.format("  %s: %.4f %s", pageScore.pageName, pageScore.relevance, pageScore.keywordCounts));
+            }
+        }
+        
+        // Every CSV line as its own page, to show the pruning on a larger collection
+        Bm25Index lineIndex = new Bm25Index();
+        for (String fileName : CSV_FILES) {
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(fileName), "UTF-8"))) {
+                String line;
+                int lineNumber = 0;
+                while ((line = reader.readLine()) != null) {
+                    lineIndex.addDocument(fileName + ":" + ++lineNumber, line);
+                }
+            } catch (IOException e) {
+                System.err.println("Error reading file: " + fileName);
+            }
+        }
+        List<String> query = Arrays.asList("car", "rental", "toronto", "automatic");
+        List<Bm25Index.Hit> exhaustive = lineIndex.search(query, lineIndex.documentCount(), Bm25Index.Scoring.BM25);
+        long startTime = System.nanoTime();
+        List<Bm25Index.Hit> top = lineIndex.search(query, 10, Bm25Index.Scoring.BM25);
+        long endTime = System.nanoTime();
+        Bm25Index.SearchStatistics statistics = lineIndex.lastSearchStatistics();
+        boolean sameTop = true;
+        for (int i = 0; i < top.size(); i++) {
+            sameTop &= top.get(i).document == exhaustive.get(i).document;
+        }
+        System.out.println("\n" + lineIndex.documentCount() + " line pages, query " + query + ", top 10 in " + (endTime - startTime) / 1000 + " microseconds");
+        System.out.println("Candidates: " + statistics.candidates + ", fully scored: " + statistics.fullyScored + 
+                           ", postings visited: " + statistics.postingsVisited + " of " + statistics.postingsTotal + 
+                           (sameTop ? " (same top 10 as exhaustive scoring)" : " (DIFFERS from exhaustive scoring)"));
+        for (int i = 0; i < Math.min(3, top.size()); i++) {
+            System.out.println(String.format("  %d. %s: %.4f", i + 1, lineIndex.documentName(top.get(i).document), top.get(i).score));
+        }
+        
+        System.out.println("\n=== Concurrent Ranking with Deadline ===");
+        ForkJoinPool rankingPool = new ForkJoinPool(4);
+        pageRanking.setPool(rankingPool);
+        String[] query5 = {"car", "rental", "price", "location"};
+        RankingResult concurrent = pageRanking.rankPagesConcurrently(3, 1000, query5);
+        List<PageScore> sequential = pageRanking.rankPages(query5);
+        boolean sameRanking = true;
+        for (int i = 0; i < concurrent.rankings.size(); i++) {
+            PageScore a = concurrent.rankings.get(i);
+            PageScore b = sequential.get(i);
+            sameRanking &= a.pageName.equals(b.pageName) && a.score == b.score && a.keywordCounts.equals(b.keywordCounts);
+        }
+        System.out.println("Top 3, " + concurrent.pagesScored + " of " + concurrent.pagesTotal + " pages scored, partial: " + concurrent.partial + 
+                           (sameRanking ? " (same as rankPages)" : " (DIFFERS from rankPages)"));
+        for (PageScore pageScore : concurrent.rankings) {
+            System.out.println("  " + pageScore.pageName + ": " + pageScore.score);
+        }
+        
+        // A very large page among the small ones: the deadline cuts it off instead of waiting for it
+        Task5_PageRanking slowRanking = new Task5_PageRanking();
+        for (Map.Entry<String, String> page : pageRanking.pages.entrySet()) {
+            slowRanking.addPage(page.getKey(), page.getValue());
+        }
+        StringBuilder largePage = new StringBuilder();
+        for (int i = 0; i < 300; i++) {
+            for (String content : pageRanking.pages.values()) {
+                largePage.append(content).append(' ');
+            }
+        }
+        slowRanking.addPage("large-page.csv", largePage.toString());
+        slowRanking.setPool(rankingPool);
+        for (long timeoutMillis : new long[] {20, 60000}) {
+            long queryStart = System.nanoTime();
+            RankingResult result = slowRanking.rankPagesConcurrently(3, timeoutMillis, query5);
+            long queryEnd = System.nanoTime();
+            System.out.println("Deadline " + timeoutMillis + " ms: " + result.pagesScored + " of " + result.pagesTotal + 
+                               " pages scored" + (result.partial ? " (PARTIAL)" : "") + " in " + (queryEnd - queryStart) / 1000000 + " ms");
+            for (PageScore pageScore : result.rankings) {
+                System.out.println("  " + pageScore.pageName + ": " + pageScore.score);
+            }
+        }
+        rankingPool.shutdown();
+        
+        System.out.println("\n=== Incremental Page Updates ===");
+        String happyPage = pageRanking.pages.get("happy.csv");
+        StringBuilder rescraped = new StringBuilder(happyPage);
+        for (int i = 0; i < 200; i++) {
+            rescraped.append("\nHappy Rentals,Car Rental,Toronto,Compact car,$45 per day");
+        }
+        int rounds = 20;
+        long updateStart = System.nanoTime();
+        for (int round = 0; round < rounds; round++) {
+            pageRanking.updatePage("happy.csv", round % 2 == 0 ? happyPage : rescraped.toString());
+        }
+        long updateMicros = (System.nanoTime() - updateStart) / 1000 / rounds;
+        long reloadStart = System.nanoTime();
+        for (int round = 0; round < rounds; round++) {
+            Task5_PageRanking reloaded = new Task5_PageRanking();
+            reloaded.loadPages(".");
+            reloaded.buildIndex();
+        }
+        long reloadMicros = (System.nanoTime() - reloadStart) / 1000 / rounds;
+        System.out.println("updatePage(happy.csv) with index: " + updateMicros + " microseconds, full reload + index build: " + reloadMicros + " microseconds");
+        for (PageScore pageScore : pageRanking.rankPagesIndexed(3, Bm25Index.Scoring.BM25, "car", "rental")) {
+            System.out.println(String.format("  %s: %.4f %s", pageScore.pageName, pageScore.relevance, pageScore.keywordCounts));
+        }
+        pageRanking.removePage("nikhil.csv");
+        System.out.println("After removePage(nikhil.csv): " + pageRanking.rankPages("car").size() + " pages, top: " + 
+                           pageRanking.rankPagesIndexed(1, Bm25Index.Scoring.BM25, "car", "rental").get(0).pageName);
+        pageRanking.reloadPage(".", "nikhil.csv");
+        
+        // The incrementally maintained index must rank like one built from scratch over the same pages
+        Task5_PageRanking rebuilt = new Task5_PageRanking();
+        for (Map.Entry<String, String> page : pageRanking.pages.entrySet()) {
+            rebuilt.putPage(page.getKey(), page.getValue(), true, false);
+        }
+        boolean sameIndex = true;
+        for (String[] keywords : new String[][] {{"car", "rental"}, {"toronto", "canada"}, {"budget", "honda"}}) {
+            List<PageScore> incremental = pageRanking.rankPagesIndexed(5, Bm25Index.Scoring.BM25, keywords);
+            List<PageScore> fresh = rebuilt.rankPagesIndexed(5, Bm25Index.Scoring.BM25, keywords);
+            sameIndex &= incremental.size() == fresh.size();
+            for (int i = 0; sameIndex && i < incremental.size(); i++) {
+                sameIndex = incremental.get(i).pageName.equals(fresh.get(i).pageName) && 
+                            Math.abs(incremental.get(i).relevance - fresh.get(i).relevance) < 1e-9;
+            }
+        }
+        System.out.println("After reloadPage(nikhil.csv): " + pageRanking.pages.size() + " pages" + 
+                           (sameIndex ? " (index ranks like a rebuilt one)" : " (index DIFFERS from a rebuilt one)"));
+        
+        // Readers ranking while happy.csv flips between two versions must always see one version or the other
+        String[] versions = {happyPage, rescraped.toString()};
+        int[][] versionTotals = new int[2][2];  // [rankPages, rankPagesIndexed][version]
+        for (int v = 0; v < 2; v++) {
+            pageRanking.updatePage("happy.csv", versions[v]);
+            for (PageScore pageScore : pageRanking.rankPages("car")) {
+                versionTotals[0][v] += pageScore.score;
+            }
+            for (PageScore pageScore : pageRanking.rankPagesIndexed(10, Bm25Index.Scoring.BM25, "car")) {
+                versionTotals[1][v] += pageScore.score;
+            }
+        }
+        long[] reads = new long[2];  // rankings, rankings matching neither version
+        boolean[] stop = new boolean[1];
+        Thread[] readers = new Thread[2];
+        for (int r = 0; r < readers.length; r++) {
+            int kind = r;
+            readers[r] = new Thread(() -> {
+                while (true) {
+                    int total = 0;
+                    for (PageScore pageScore : kind == 0 ? pageRanking.rankPages("car") 
+                                                         : pageRanking.rankPagesIndexed(10, Bm25Index.Scoring.BM25, "car")) {
+                        total += pageScore.score;
+                    }
+                    synchronized (reads) {
+                        reads[0]++;
+                        if (total != versionTotals[kind][0] && total != versionTotals[kind][1]) {
+                            reads[1]++;
+                        }
+                        if (stop[0]) {
+                            return;
+                        }
+                    }
+                }
+            });
+            readers[r].start();
+        }
+        int updates = 200;
+        for (int u = 0; u < updates; u++) {
+            pageRanking.updatePage("happy.csv", versions[u % 2]);
+        }
+        synchronized (reads) {
+            stop[0] = true;
+        }
+        for (Thread reader : readers) {
+            try {
+                reader.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        System.out.println("Concurrent readers: " + reads[0] + " rankings during " + updates + " updates, matching neither version: " + reads[1]);
     }
 }
@@ -7,19 +7,67 @@ import java.io.*;
  */
 public class Task6_InvertedIndexing {
     
+    private static final String[] CSV_FILES = {"swiftride_data 2.csv", "prabh.csv", "kayak_scraped_data.csv", "nikhil.csv", "happy.csv"};
+    
     private TrieNode root;
-    private Map<String, Set<String>> invertedIndex;
-    private Map<String, String> documents;
+    // word -> compressed postings (document id, frequency, token positions); the trie nodes share the same lists
+    private Map<String, PostingList> invertedIndex;
+    // Document-ID dictionary: postings store ids in load order instead of file name references
+    private List<String> documentNames;
+    private Map<String, Integer> documentIds;
+    private CsvTokenizer.TermDictionary terms;
+    private DocumentCounter counter;
+    private WordTrie backend;
+    private List<PostingList> wordPostings;
+    private TrieSnapshot snapshot;
     
     class TrieNode {
         Map<Character, TrieNode> children;
         boolean isEndOfWord;
-        Set<String> documentSet;
+        PostingList postings;  // documents containing this word
         
         TrieNode() {
             children = new HashMap<>();
             isEndOfWord = false;
-            documentSet = new HashSet<>();
+        }
+    }
+    
+    /**
+     * Collects one document's token positions by term id while it is read, remembering the order
+     * in which terms first appeared. Reused for every document; reset() only clears the terms it saw.
+     */
+    class DocumentCounter implements CsvTokenizer.TokenSink {
+        int[] counts = new int[terms.size() + 64];
+        int[][] positions = new int[terms.size() + 64][];
+        int[] firstSeen = new int[64];
+        int distinct;
+        int tokens;
+        
+        @Override
+        public void token(char[] buffer, int offset, int length) {
+            int id = terms.intern(buffer, offset, length);
+            if (id >= counts.length) {
+                counts = Arrays.copyOf(counts, Math.max(id + 1, counts.length * 2));
+                positions = Arrays.copyOf(positions, counts.length);
+            }
+            if (counts[id] == 0) {
+                if (distinct == firstSeen.length) {
+                    firstSeen = Arrays.copyOf(firstSeen, distinct * 2);
+                }
+                firstSeen[distinct++] = id;
+                positions[id] = new int[4];
+            } else if (counts[id] == positions[id].length) {
+                positions[id] = Arrays.copyOf(positions[id], counts[id] * 2);
+            }
+            positions[id][counts[id]++] = tokens++;
+        }
+        
+        void reset() {
+            for (int i = 0; i < distinct; i++) {
+                counts[firstSeen[i]] = 0;
+            }
+            distinct = 0;
+            tokens = 0;
         }
     }
     
@@ -38,30 +86,34 @@ public class Task6_InvertedIndexing {
     public Task6_InvertedIndexing() {
         root = new TrieNode();
         invertedIndex = new HashMap<>();
-        documents = new LinkedHashMap<>();
+        documentNames = new ArrayList<>();
+        documentIds = new HashMap<>();
+        terms = new CsvTokenizer.TermDictionary();
+        counter = new DocumentCounter();
+    }
+    
+    /**
+     * Keeps the trie in the given backend (e.g. ArrayWordTrie) instead of TrieNode objects;
+     * each word's postings live in a list indexed by its word id.
+     */
+    public Task6_InvertedIndexing(WordTrie backend) {
+        this();
+        this.root = null;
+        this.backend = backend;
+        this.wordPostings = new ArrayList<>();
     }
     
     public void loadDocuments(String basePath) {
-        String[] csvFiles = {"swiftride_data 2.csv", "prabh.csv", "kayak_scraped_data.csv", "nikhil.csv", "happy.csv"};
-        
+        checkWritable();
         System.out.println("Building inverted index...");
         
-        for (String fileName : csvFiles) {
+        for (String fileName : CSV_FILES) {
             String filePath = basePath + "/" + fileName;
-            StringBuilder content = new StringBuilder();
             
-            try (Scanner scanner = new Scanner(new File(filePath))) {
-                if (scanner.hasNextLine()) {
-                    scanner.nextLine();
-                }
-                
-                while (scanner.hasNextLine()) {
-                    content.append(scanner.nextLine().toLowerCase()).append(" ");
-                }
-                
-                String documentContent = content.toString();
-                documents.put(fileName, documentContent);
-                indexDocument(fileName, documentContent);
+            try {
+                counter.reset();
+                CsvTokenizer.tokenizeFile(new File(filePath), true, counter);
+                indexDocument(fileName);
                 
             } catch (Exception e) {
                 System.err.println("Error reading file: " + fileName);
@@ -71,20 +123,112 @@ public class Task6_InvertedIndexing {
         System.out.println("Indexing complete!");
     }
     
-    private void indexDocument(String documentName, String content) {
-        String[] words = content.split("[,\\s\\|\\-/]+");
+    /**
+     * Indexes one more document (e.g. a scraped page) from its text.
+     *
+     * @throws IllegalArgumentException if a document with this name is already indexed
+     * @throws IllegalStateException if the index was mapped from a snapshot (read-only)
+     */
+    public void addDocument(String documentName, CharSequence content) {
+        checkWritable();
+        if (documentIds.containsKey(documentName)) {
+            throw new IllegalArgumentException("Document already indexed: " + documentName);
+        }
+        counter.reset();
+        CsvTokenizer.tokenize(content, counter);
+        indexDocument(documentName);
+    }
+    
+    // A mapped snapshot is read-only: check before anything is registered, so a refused call changes nothing
+    private void checkWritable() {
+        if (snapshot != null) {
+            throw new IllegalStateException("Index was mapped from a snapshot and is read-only");
+        }
+    }
+    
+    /**
+     * Fast startup for a new instance: maps the index (vocabulary plus each word's documents and
+     * occurrence counts) from the snapshot file if it was built from the current CSVs. Otherwise
+     * rebuilds from the CSVs and writes a fresh snapshot. Returns true if the snapshot was used.
+     * A mapped index is read-only: addDocument and loadDocuments(basePath) then throw IllegalStateException.
+     */
+    public boolean loadDocuments(String basePath, File snapshotFile) {
+        long sourceStamp = TrieSnapshot.sourceStamp(basePath, CSV_FILES);
+        try {
+            snapshot = TrieSnapshot.open(snapshotFile, sourceStamp);
+            backend = snapshot.trie();
+            root = null;
+            return true;
+        } catch (IOException e) {
+            System.out.println("Snapshot not used (" + e.getMessage() + "), rebuilding from CSV files");
+        }
         
-        for (String word : words) {
-            String cleanWord = word.replaceAll("[^a-zA-Z]", "").toLowerCase();
-            if (cleanWord.length() > 2) {
-                insertWordWithDocument(cleanWord, documentName);
-                invertedIndex.putIfAbsent(cleanWord, new HashSet<>());
-                invertedIndex.get(cleanWord).add(documentName);
+        loadDocuments(basePath);
+        try {
+            writeSnapshot(snapshotFile, sourceStamp);
+        } catch (IOException e) {
+            System.err.println("Error writing snapshot: " + snapshotFile);
+        }
+        return false;
+    }
+    
+    /**
+     * Freezes the vocabulary into a DAWG (ids = sorted ranks) and stores, per word, the ids of its
+     * documents in load order together with the number of occurrences in each.
+     */
+    private void writeSnapshot(File snapshotFile, long sourceStamp) throws IOException {
+        List<String> words = new ArrayList<>(invertedIndex.keySet());
+        Collections.sort(words);
+        DawgWordTrie trie = new DawgWordTrie(words);
+        
+        int[][] postingDocuments = new int[words.size()][];
+        int[][] postingOccurrences = new int[words.size()][];
+        for (int id = 0; id < words.size(); id++) {
+            PostingList postings = invertedIndex.get(words.get(id));
+            postingDocuments[id] = new int[postings.size()];
+            postingOccurrences[id] = new int[postings.size()];
+            PostingList.Cursor cursor = postings.cursor();
+            for (int p = 0; cursor.next(); p++) {
+                postingDocuments[id][p] = cursor.document();
+                postingOccurrences[id][p] = cursor.frequency();
+            }
+        }
+        TrieSnapshot.write(snapshotFile, sourceStamp, trie, null, documentNames.toArray(new String[0]), postingDocuments, postingOccurrences);
+    }
+    
+    /**
+     * Gives the counted document the next id and appends it to the postings of each of its
+     * distinct words, with the word's frequency and positions. A word seen for the first time
+     * gets its posting list and trie entry.
+     */
+    private void indexDocument(String documentName) {
+        int document = documentNames.size();
+        documentNames.add(documentName);
+        documentIds.put(documentName, document);
+        
+        for (int i = 0; i < counter.distinct; i++) {
+            int id = counter.firstSeen[i];
+            String word = terms.term(id);
+            PostingList postings = invertedIndex.get(word);
+            if (postings == null) {
+                postings = new PostingList(true);
+                invertedIndex.put(word, postings);
+                insertWordWithPostings(word, postings);
             }
+            postings.add(document, counter.counts[id], counter.positions[id]);
         }
     }
     
-    private void insertWordWithDocument(String word, String documentName) {
+    private void insertWordWithPostings(String word, PostingList postings) {
+        if (backend != null) {
+            int id = backend.insert(word);
+            while (wordPostings.size() <= id) {
+                wordPostings.add(null);
+            }
+            wordPostings.set(id, postings);
+            return;
+        }
+        
         TrieNode current = root;
         
         for (char ch : word.toCharArray()) {
@@ -93,27 +237,138 @@ public class Task6_InvertedIndexing {
         }
         
         current.isEndOfWord = true;
-        current.documentSet.add(documentName);
+        current.postings = postings;
     }
     
     public SearchResult search(String word) {
         String normalizedWord = word.toLowerCase();
         SearchResult result = new SearchResult(normalizedWord);
         
-        TrieNode node = searchNode(normalizedWord);
+        if (snapshot != null) {
+            // One pass over the word's postings: documents and their counts come together
+            int id = backend.find(normalizedWord);
+            if (id >= 0) {
+                for (int p = snapshot.postingStart(id); p < snapshot.postingEnd(id); p++) {
+                    String docName = snapshot.documentName(snapshot.postingDocument(p));
+                    result.documents.add(docName);
+                    result.documentFrequency.put(docName, snapshot.postingOccurrences(p));
+                }
+            }
+            return result;
+        }
         
-        if (node != null && node.isEndOfWord) {
-            result.documents = new HashSet<>(node.documentSet);
-            
-            for (String docName : result.documents) {
-                int frequency = countWordInDocument(docName, normalizedWord);
-                result.documentFrequency.put(docName, frequency);
+        PostingList postings = findPostings(normalizedWord);
+        
+        if (postings != null) {
+            PostingList.Cursor cursor = postings.cursor();
+            while (cursor.next()) {
+                String docName = documentNames.get(cursor.document());
+                result.documents.add(docName);
+                result.documentFrequency.put(docName, cursor.frequency());
             }
         }
         
         return result;
     }
     
+    /**
+     * Token positions of a word in a document (empty if it doesn't occur there), or null when the
+     * index was mapped from a snapshot, which stores counts only. Positions count only the tokens
+     * CsvTokenizer keeps (letters only, at least three long) and run on across cells and lines.
+     */
+    public int[] positions(String word, String documentName) {
+        if (snapshot != null) {
+            return null;
+        }
+        PostingList postings = invertedIndex.get(word.toLowerCase());
+        Integer document = documentIds.get(documentName);
+        if (postings == null || document == null) {
+            return new int[0];
+        }
+        PostingList.Cursor cursor = postings.cursor();
+        return cursor.advanceTo(document) && cursor.document() == document ? cursor.positions() : new int[0];
+    }
+    
+    /**
+     * Documents containing the words as consecutive tokens, with the number of occurrences of the
+     * phrase in each. Only documents in the intersection of the words' postings are considered, and
+     * their positions are intersected word by word.
+     *
+     * "Consecutive" is in indexed tokens (see positions): dropped words in between don't break a
+     * phrase, so "car", "toronto" matches "car in toronto", and a phrase may span cells or lines.
+     * A word the tokenizer drops (e.g. "to") is never indexed, so a phrase containing it never matches.
+     */
+    public Map<String, Integer> searchPhrase(String... words) {
+        Map<String, Integer> matches = new LinkedHashMap<>();
+        if (words.length == 0 || snapshot != null) {
+            return matches;
+        }
+        List<PostingList> lists = new ArrayList<>();
+        for (String word : words) {
+            PostingList postings = invertedIndex.get(word.toLowerCase());
+            if (postings == null) {
+                return matches;
+            }
+            lists.add(postings);
+        }
+        
+        PostingList.Cursor[] cursors = new PostingList.Cursor[words.length];
+        for (int i = 0; i < words.length; i++) {
+            cursors[i] = lists.get(i).cursor();
+        }
+        for (int document : PostingList.intersect(lists)) {
+            // Candidate phrase starts, narrowed by every word at its offset
+            int[] starts = null;
+            int count = 0;
+            for (int i = 0; i < words.length; i++) {
+                cursors[i].advanceTo(document);
+                int[] positions = cursors[i].positions();
+                if (starts == null) {
+                    starts = new int[positions.length];
+                    for (int p = 0; p < positions.length; p++) {
+                        starts[p] = positions[p] - i;
+                    }
+                    count = starts.length;
+                } else {
+                    count = intersectShifted(starts, count, positions, i);
+                }
+                if (count == 0) {
+                    break;
+                }
+            }
+            if (count > 0) {
+                matches.put(documentNames.get(document), count);
+            }
+        }
+        return matches;
+    }
+    
+    // Keeps the starts s (sorted, first count entries) for which s + offset is in positions (sorted)
+    private static int intersectShifted(int[] starts, int count, int[] positions, int offset) {
+        int kept = 0;
+        int p = 0;
+        for (int i = 0; i < count; i++) {
+            int target = starts[i] + offset;
+            while (p < positions.length && positions[p] < target) {
+                p++;
+            }
+            if (p < positions.length && positions[p] == target) {
+                starts[kept++] = starts[i];
+            }
+        }
+        return kept;
+    }
+    
+    // The word's postings, found through the trie
+    private PostingList findPostings(String word) {
+        if (backend != null) {
+            int id = backend.find(word);
+            return id >= 0 ? wordPostings.get(id) : null;
+        }
+        TrieNode node = searchNode(word);
+        return node != null && node.isEndOfWord ? node.postings : null;
+    }
+    
     private TrieNode searchNode(String word) {
         TrieNode current = root;
         
@@ -128,25 +383,48 @@ public class Task6_InvertedIndexing {
     }
     
     private int countWordInDocument(String documentName, String word) {
-        String content = documents.get(documentName);
-        if (content == null) return 0;
-        
-        int count = 0;
-        String[] words = content.split("[,\\s\\|\\-/]+");
-        
-        for (String w : words) {
-            String cleanWord = w.replaceAll("[^a-zA-Z]", "").toLowerCase();
-            if (cleanWord.equals(word)) {
-                count++;
+        if (snapshot != null) {
+            return snapshotOccurrences(documentName, word);
+        }
+        // Stored in the postings at load time: a skip to the document's block instead of a re-scan
+        PostingList postings = invertedIndex.get(word);
+        Integer document = documentIds.get(documentName);
+        return postings == null || document == null ? 0 : postings.frequency(document);
+    }
+    
+    private int snapshotOccurrences(String documentName, String word) {
+        int id = backend.find(word);
+        if (id < 0) {
+            return 0;
+        }
+        for (int p = snapshot.postingStart(id); p < snapshot.postingEnd(id); p++) {
+            if (snapshot.documentName(snapshot.postingDocument(p)).equals(documentName)) {
+                return snapshot.postingOccurrences(p);
             }
         }
-        
-        return count;
+        return 0;
     }
     
     public Set<String> searchMultiple(String... words) {
         if (words.length == 0) return new HashSet<>();
         
+        if (snapshot == null) {
+            // Intersected on the compressed postings, without building a set per word
+            List<PostingList> lists = new ArrayList<>();
+            for (String word : words) {
+                PostingList postings = findPostings(word.toLowerCase());
+                if (postings == null) {
+                    return new HashSet<>();
+                }
+                lists.add(postings);
+            }
+            Set<String> result = new HashSet<>();
+            for (int document : PostingList.intersect(lists)) {
+                result.add(documentNames.get(document));
+            }
+            return result;
+        }
+        
         Set<String> result = null;
         
         for (String word : words) {
@@ -207,21 +485,62 @@ public class Task6_InvertedIndexing {
     }
     
     public void displayStatistics() {
+        if (snapshot != null) {
+            displaySnapshotStatistics();
+            return;
+        }
         System.out.println("\n=== Inverted Index Statistics ===");
-        System.out.println("Total documents indexed: " + documents.size());
+        System.out.println("Total documents indexed: " + documentNames.size());
         System.out.println("Total unique words indexed: " + invertedIndex.size());
         
-        List<Map.Entry<String, Set<String>>> sortedWords = new ArrayList<>(invertedIndex.entrySet());
+        List<Map.Entry<String, PostingList>> sortedWords = new ArrayList<>(invertedIndex.entrySet());
         sortedWords.sort((a, b) -> Integer.compare(b.getValue().size(), a.getValue().size()));
         
         System.out.println("\nTop 10 Most Common Words (by document count):");
         for (int i = 0; i < Math.min(10, sortedWords.size()); i++) {
-            Map.Entry<String, Set<String>> entry = sortedWords.get(i);
+            Map.Entry<String, PostingList> entry = sortedWords.get(i);
             System.out.println("  " + (i + 1) + ". \"" + entry.getKey() + "\" - appears in " + 
                              entry.getValue().size() + " document(s)");
         }
     }
     
+    /**
+     * Size of the compressed postings against plain int arrays (document id, frequency, positions).
+     */
+    public void displayPostingSizes() {
+        long postings = 0;
+        long positions = 0;
+        long bytes = 0;
+        for (PostingList list : invertedIndex.values()) {
+            postings += list.size();
+            positions += list.positionCount();
+            bytes += list.sizeInBytes();
+        }
+        System.out.println("Postings: " + postings + " (" + positions + " positions) in " + bytes + " bytes compressed, " + 
+                           4 * (2 * postings + positions) + " bytes as int arrays, " + 
+                           String.format("%.2f", bytes / (double) Math.max(1, positions)) + " bytes per position");
+    }
+    
+    private void displaySnapshotStatistics() {
+        System.out.println("\n=== Inverted Index Statistics ===");
+        System.out.println("Total documents indexed: " + snapshot.documentCount());
+        System.out.println("Total unique words indexed: " + backend.size());
+        
+        List<Integer> ids = new ArrayList<>();
+        for (int id = 0; id < backend.size(); id++) {
+            ids.add(id);
+        }
+        ids.sort((a, b) -> Integer.compare(snapshot.postingEnd(b) - snapshot.postingStart(b),
+                                           snapshot.postingEnd(a) - snapshot.postingStart(a)));
+        
+        System.out.println("\nTop 10 Most Common Words (by document count):");
+        for (int i = 0; i < Math.min(10, ids.size()); i++) {
+            int id = ids.get(i);
+            System.out.println("  " + (i + 1) + ". \"" + backend.wordOf(id) + "\" - appears in " + 
+                             (snapshot.postingEnd(id) - snapshot.postingStart(id)) + " document(s)");
+        }
+    }
+    
     public static void main(String[] args) {
         System.out.println("=== Task 6: Inverted Indexing Using Tries ===\n");
         
@@ -248,5 +567,86 @@ public class Task6_InvertedIndexing {
         indexer.search("rental");
         long endTime = System.nanoTime();
         System.out.println("Inverted index search time: " + (endTime - startTime) / 1000 + " microseconds");
+        
+        System.out.println("\n=== Compact Trie Backend ===");
+        Task6_InvertedIndexing compactIndexer = new Task6_InvertedIndexing(new ArrayWordTrie());
+        compactIndexer.loadDocuments(".");
+        compactIndexer.displaySearchResult("rental");
+        
+        System.out.println("\n=== Snapshot Startup ===");
+        File snapshotFile = new File(System.getProperty("java.io.tmpdir"), "task6_index.snapshot");
+        snapshotFile.delete();
+        for (int run = 1; run <= 2; run++) {
+            Task6_InvertedIndexing restarted = new Task6_InvertedIndexing();
+            startTime = System.nanoTime();
+            boolean mapped = restarted.loadDocuments(".", snapshotFile);
+            endTime = System.nanoTime();
+            System.out.println("Start " + run + (mapped ? " (mapped snapshot): " : " (CSV rebuild): ") + 
+                               (endTime - startTime) / 1000 + " microseconds");
+            restarted.displaySearchResult("rental");
+        }
+        
+        System.out.println("\n=== Positional Postings ===");
+        int[] rentalPositions = indexer.positions("rental", "happy.csv");
+        System.out.println("\"rental\" in happy.csv: " + rentalPositions.length + " occurrence(s), first positions " + 
+                           Arrays.toString(Arrays.copyOf(rentalPositions, Math.min(5, rentalPositions.length))));
+        for (String[] phrase : new String[][] {{"car", "rental"}, {"rental", "car"}, {"economy", "car"}}) {
+            startTime = System.nanoTime();
+            Map<String, Integer> matches = indexer.searchPhrase(phrase);
+            endTime = System.nanoTime();
+            System.out.println("Phrase \"" + String.join(" ", phrase) + "\": " + matches + " in " + (endTime - startTime) / 1000 + " microseconds");
+        }
+        
+        System.out.println("\n=== Compressed Postings ===");
+        indexer.displayPostingSizes();
+        
+        // Many small pages: every page is a CSV line, drawn at random from the five files
+        List<String> lines = new ArrayList<>();
+        for (String fileName : CSV_FILES) {
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(fileName), "UTF-8"))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    lines.add(line);
+                }
+            } catch (IOException e) {
+                System.err.println("Error reading file: " + fileName);
+            }
+        }
+        int pageCount = 100000;
+        Random random = new Random(42);
+        Task6_InvertedIndexing pageIndexer = new Task6_InvertedIndexing();
+        startTime = System.nanoTime();
+        for (int page = 0; page < pageCount; page++) {
+            pageIndexer.addDocument("page-" + page + ".csv", lines.get(random.nextInt(lines.size())));
+        }
+        endTime = System.nanoTime();
+        System.out.println("\nIndexed " + pageCount + " pages in " + (endTime - startTime) / 1000000 + " ms");
+        pageIndexer.displayPostingSizes();
+        
+        // The same AND queries on HashSet<String> document sets, as the index used to store them
+        for (String[] query : new String[][] {{"car", "rental"}, {"economy", "canada"}}) {
+            List<PostingList> lists = Arrays.asList(pageIndexer.invertedIndex.get(query[0]), pageIndexer.invertedIndex.get(query[1]));
+            Set<String> first = pageIndexer.search(query[0]).documents;
+            Set<String> second = pageIndexer.search(query[1]).documents;
+            long compressedNanos = Long.MAX_VALUE;
+            long hashedNanos = Long.MAX_VALUE;
+            int[] compressed = null;
+            Set<String> hashed = null;
+            for (int round = 0; round < 20; round++) {
+                startTime = System.nanoTime();
+                compressed = PostingList.intersect(lists);
+                endTime = System.nanoTime();
+                compressedNanos = Math.min(compressedNanos, endTime - startTime);
+                startTime = System.nanoTime();
+                hashed = new HashSet<>(first);
+                hashed.retainAll(second);
+                endTime = System.nanoTime();
+                hashedNanos = Math.min(hashedNanos, endTime - startTime);
+            }
+            boolean same = pageIndexer.searchMultiple(query).equals(hashed) && compressed.length == hashed.size();
+            System.out.println("\"" + query[0] + "\" (" + first.size() + " pages) AND \"" + query[1] + "\" (" + second.size() + " pages): " + 
+                               compressed.length + " pages, compressed postings " + compressedNanos / 1000 + " microseconds, HashSet retainAll " + 
+                               hashedNanos / 1000 + " microseconds" + (same ? "" : " (RESULTS DIFFER)"));
+        }
     }
 }
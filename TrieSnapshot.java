@@ -0,0 +1,286 @@
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.zip.CRC32;
+
+/**
+ * Binary snapshot of a frozen vocabulary (DawgWordTrie), an optional int per word (e.g. frequency)
+ * and optional per-word postings (document id, occurrences), written once and reopened through
+ * FileChannel.map. The automaton and postings are read straight from the mapped buffer, so a
+ * restart costs one checksum pass over the file instead of re-parsing the CSVs.
+ *
+ * File layout (big-endian):
+ *   header  - magic, version, source stamp, payload length, CRC32 of the payload
+ *   payload - counts, then the int sections, the char section, the byte section and document names
+ *
+ * Assignment 3
+ */
+public class TrieSnapshot {
+
+    public static final int VERSION = 1;
+
+    private static final int MAGIC = 0x41335453;  // "A3TS"
+    private static final int HEADER_BYTES = 4 + 4 + 8 + 8 + 8;
+    private static final int COUNT_FIELDS = 6;
+
+    private final DawgWordTrie trie;
+    private final IntBuffer values;
+    private final IntBuffer postingStart;
+    private final IntBuffer postingDocument;
+    private final IntBuffer postingOccurrences;
+    private final String[] documentNames;
+
+    private TrieSnapshot(DawgWordTrie trie, IntBuffer values, IntBuffer postingStart, IntBuffer postingDocument,
+                         IntBuffer postingOccurrences, String[] documentNames) {
+        this.trie = trie;
+        this.values = values;
+        this.postingStart = postingStart;
+        this.postingDocument = postingDocument;
+        this.postingOccurrences = postingOccurrences;
+        this.documentNames = documentNames;
+    }
+
+    /**
+     * Fingerprint of the source files (name, size, last modified), stored in the header so a
+     * snapshot built from older CSVs is recognised as stale. Missing files still contribute.
+     */
+    public static long sourceStamp(String basePath, String... fileNames) {
+        long stamp = VERSION;
+        for (String fileName : fileNames) {
+            File file = new File(basePath, fileName);
+            stamp = stamp * 31 + fileName.hashCode();
+            stamp = stamp * 31 + (file.exists() ? file.length() : -1);
+            stamp = stamp * 31 + file.lastModified();
+        }
+        return stamp;
+    }
+
+    /**
+     * Writes a snapshot to a temporary file next to the target and moves it into place,
+     * so readers never map a half-written file.
+     *
+     * @param values one int per word id, or null
+     * @param documentNames document names indexed by document id, or null for no postings
+     * @param postingDocuments per word id, the ids of the documents containing it in ascending order
+     * @param postingOccurrences per word id, how often it occurs in each of those documents
+     */
+    public static void write(File file, long sourceStamp, DawgWordTrie trie, int[] values, String[] documentNames,
+                             int[][] postingDocuments, int[][] postingOccurrences) throws IOException {
+        int states = trie.nodeCount();
+        int edges = trie.edgeCount();
+        int words = trie.size();
+        int valueCount = values == null ? 0 : words;
+        int documents = documentNames == null ? 0 : documentNames.length;
+        int postingCount = 0;
+        if (documents > 0) {
+            for (int id = 0; id < words; id++) {
+                postingCount += postingDocuments[id].length;
+            }
+        }
+        byte[][] names = new byte[documents][];
+        int nameBytes = 0;
+        for (int d = 0; d < documents; d++) {
+            names[d] = documentNames[d].getBytes(StandardCharsets.UTF_8);
+            nameBytes += 4 + names[d].length;
+        }
+
+        long payloadBytes = 4L * COUNT_FIELDS
+            + 4L * ((states + 1) + states + edges + valueCount + (documents > 0 ? words + 1 : 0) + 2L * postingCount)
+            + 2L * edges + states + nameBytes;
+        if (payloadBytes > Integer.MAX_VALUE - HEADER_BYTES) {
+            throw new IOException("Vocabulary too large for a snapshot: " + payloadBytes + " bytes");
+        }
+        ByteBuffer payload = ByteBuffer.allocate((int) payloadBytes);
+
+        payload.putInt(states).putInt(edges).putInt(trie.root()).putInt(valueCount).putInt(documents).putInt(postingCount);
+        for (int s = 0; s < states; s++) {
+            payload.putInt(trie.firstEdge(s));
+        }
+        payload.putInt(edges);
+        for (int s = 0; s < states; s++) {
+            payload.putInt(trie.wordsFrom(s));
+        }
+        for (int e = 0; e < edges; e++) {
+            payload.putInt(trie.edgeTarget(e));
+        }
+        for (int id = 0; id < valueCount; id++) {
+            payload.putInt(values[id]);
+        }
+        if (documents > 0) {
+            int start = 0;
+            for (int id = 0; id < words; id++) {
+                payload.putInt(start);
+                start += postingDocuments[id].length;
+            }
+            payload.putInt(start);
+            for (int id = 0; id < words; id++) {
+                for (int document : postingDocuments[id]) {
+                    payload.putInt(document);
+                }
+            }
+            for (int id = 0; id < words; id++) {
+                for (int occurrences : postingOccurrences[id]) {
+                    payload.putInt(occurrences);
+                }
+            }
+        }
+        for (int e = 0; e < edges; e++) {
+            payload.putChar(trie.edgeLabel(e));
+        }
+        for (int s = 0; s < states; s++) {
+            payload.put((byte) (trie.isFinal(s) ? 1 : 0));
+        }
+        for (byte[] name : names) {
+            payload.putInt(name.length).put(name);
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(payload.array());
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        header.putInt(MAGIC).putInt(VERSION).putLong(sourceStamp).putLong(payloadBytes).putLong(crc.getValue());
+        header.flip();
+        payload.flip();
+
+        Path target = file.toPath();
+        Path temporary = target.resolveSibling(file.getName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            while (header.hasRemaining() || payload.hasRemaining()) {
+                channel.write(new ByteBuffer[] {header, payload});
+            }
+            channel.force(true);
+        }
+        Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Maps a snapshot and validates it before use.
+     *
+     * @throws IOException if the file is missing, has another version, was built from different
+     *                     sources (stale) or fails the checksum
+     */
+    public static TrieSnapshot open(File file, long expectedSourceStamp) throws IOException {
+        if (!file.exists()) {
+            throw new FileNotFoundException("No snapshot at " + file);
+        }
+        ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_BYTES) {
+                throw new IOException("Snapshot too short: " + file);
+            }
+            // The mapping stays valid after the channel is closed
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+
+        if (buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a trie snapshot: " + file);
+        }
+        if (buffer.getInt(4) != VERSION) {
+            throw new IOException("Snapshot version " + buffer.getInt(4) + ", expected " + VERSION);
+        }
+        if (buffer.getLong(8) != expectedSourceStamp) {
+            throw new IOException("Snapshot is stale (source files changed)");
+        }
+        long payloadBytes = buffer.getLong(16);
+        if (payloadBytes != buffer.capacity() - HEADER_BYTES) {
+            throw new IOException("Snapshot is truncated: " + file);
+        }
+        buffer.position(HEADER_BYTES);
+        ByteBuffer payload = buffer.slice();
+        CRC32 crc = new CRC32();
+        crc.update(payload.duplicate());
+        if (crc.getValue() != buffer.getLong(24)) {
+            throw new IOException("Snapshot checksum mismatch: " + file);
+        }
+
+        int states = payload.getInt();
+        int edges = payload.getInt();
+        int root = payload.getInt();
+        int valueCount = payload.getInt();
+        int documents = payload.getInt();
+        int postingCount = payload.getInt();
+
+        IntBuffer edgeStart = ints(payload, states + 1);
+        IntBuffer wordsFrom = ints(payload, states);
+        IntBuffer edgeTarget = ints(payload, edges);
+        IntBuffer values = valueCount > 0 ? ints(payload, valueCount) : null;
+        int words = wordsFrom.get(root);
+        IntBuffer postingStart = documents > 0 ? ints(payload, words + 1) : null;
+        IntBuffer postingDocument = documents > 0 ? ints(payload, postingCount) : null;
+        IntBuffer postingOccurrences = documents > 0 ? ints(payload, postingCount) : null;
+        CharBuffer edgeLabel = slice(payload, 2 * edges).asCharBuffer();
+        ByteBuffer isFinal = slice(payload, states);
+
+        String[] documentNames = new String[documents];
+        for (int d = 0; d < documents; d++) {
+            byte[] name = new byte[payload.getInt()];
+            payload.get(name);
+            documentNames[d] = new String(name, StandardCharsets.UTF_8);
+        }
+
+        DawgWordTrie trie = new DawgWordTrie(edgeStart, edgeLabel, edgeTarget, isFinal, wordsFrom, root);
+        return new TrieSnapshot(trie, values, postingStart, postingDocument, postingOccurrences, documentNames);
+    }
+
+    private static IntBuffer ints(ByteBuffer payload, int count) {
+        return slice(payload, 4 * count).asIntBuffer();
+    }
+
+    // Cuts the next bytes off the payload as their own buffer and moves past them
+    private static ByteBuffer slice(ByteBuffer payload, int bytes) {
+        ByteBuffer section = payload.slice();
+        section.limit(bytes);
+        payload.position(payload.position() + bytes);
+        return section;
+    }
+
+    public DawgWordTrie trie() {
+        return trie;
+    }
+
+    public boolean hasValues() {
+        return values != null;
+    }
+
+    public int value(int wordId) {
+        return values.get(wordId);
+    }
+
+    /**
+     * Copies the per-word values into an array (one bulk read).
+     */
+    public int[] values() {
+        int[] copy = new int[values.capacity()];
+        values.duplicate().get(copy);
+        return copy;
+    }
+
+    public int documentCount() {
+        return documentNames.length;
+    }
+
+    public String documentName(int documentId) {
+        return documentNames[documentId];
+    }
+
+    /**
+     * Postings of a word are positions postingStart(id) .. postingEnd(id) - 1, by document id.
+     */
+    public int postingStart(int wordId) {
+        return postingStart.get(wordId);
+    }
+
+    public int postingEnd(int wordId) {
+        return postingStart.get(wordId + 1);
+    }
+
+    public int postingDocument(int posting) {
+        return postingDocument.get(posting);
+    }
+
+    public int postingOccurrences(int posting) {
+        return postingOccurrences.get(posting);
+    }
+}
@@ -0,0 +1,46 @@
+import java.util.*;
+
+/**
+ * Common operations of the trie backends used by Task 2 and Task 6.
+ * Every distinct word gets a dense id (0, 1, 2, ...) the first time it is inserted,
+ * so callers keep per-word data (frequencies, document sets) in their own id-indexed storage.
+ *
+ * Assignment 3
+ */
+public interface WordTrie {
+
+    /**
+     * Inserts a word and returns its id (the existing id if the word is already present).
+     */
+    int insert(String word);
+
+    /**
+     * Returns the id of a word, or -1 if it is not in the trie.
+     */
+    int find(String word);
+
+    /**
+     * Lazily walks the ids of all words starting with the prefix, in lexicographic order.
+     */
+    default PrimitiveIterator.OfInt wordsWithPrefix(String prefix) {
+        return wordsWithPrefix(prefix, -1);
+    }
+
+    /**
+     * Same walk, resumed right after the word with id afterId (-1 starts from the beginning).
+     *
+     * @throws IllegalArgumentException if afterId is not a word under the prefix
+     */
+    PrimitiveIterator.OfInt wordsWithPrefix(String prefix, int afterId);
+
+    /**
+     * Number of words starting with the prefix, read from per-node counters kept during insert.
+     */
+    int countWithPrefix(String prefix);
+
+    String wordOf(int id);
+
+    int size();
+
+    int nodeCount();
+}